@@ -9,6 +9,12 @@ import lombok.Setter;
 import net.bitbylogic.orm.data.BormObject;
 import net.bitbylogic.orm.data.BormTable;
 import net.bitbylogic.orm.data.ColumnData;
+import net.bitbylogic.orm.data.statements.BormStatements;
+import net.bitbylogic.orm.executor.DatabaseExecutor;
+import net.bitbylogic.orm.executor.ExecutorMode;
+import net.bitbylogic.orm.executor.GroupCommitWriter;
+import net.bitbylogic.orm.executor.OverloadPolicy;
+import net.bitbylogic.orm.executor.TaskPriority;
 import net.bitbylogic.orm.processor.FieldProcessor;
 import net.bitbylogic.orm.processor.impl.DefaultFieldProcessor;
 import net.bitbylogic.orm.processor.impl.StringListProcessor;
@@ -18,6 +24,9 @@ import net.bitbylogic.utils.reflection.ReflectionUtil;
 import net.bitbylogic.utils.reflection.TypeToken;
 import org.jetbrains.annotations.Nullable;
 
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetFactory;
+import javax.sql.rowset.RowSetProvider;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
@@ -28,22 +37,36 @@ import java.sql.SQLException;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 @Getter
 public class BormAPI {
 
     private final static DefaultFieldProcessor DEFAULT_FIELD_PROCESSOR = new DefaultFieldProcessor();
+    private final static int QUEUE_CAPACITY_PER_CONNECTION = 1000;
+    private final static int DEFAULT_SQLITE_READ_CONNECTIONS = 4;
+    private final static RowSetFactory ROW_SET_FACTORY = createRowSetFactory();
 
     private final Logger logger;
     private final HikariDataSource dataSource;
-    private final ExecutorService dbExecutor;
+    private final HikariDataSource readDataSource;
+    private final DatabaseExecutor dbExecutor;
+    private final DatabaseExecutor readExecutor;
+    private final @Nullable GroupCommitWriter groupCommitWriter;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "BORM-Scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private final ConcurrentHashMap<TypeToken<?>, FieldProcessor<?>> fieldProcessors = new ConcurrentHashMap<>();
 
-    private final HashMap<String, Pair<String, BormTable<?>>> tables = new HashMap<>();
-    private final HashMap<BormTable<?>, List<String>> pendingTables = new HashMap<>();
+    private final ConcurrentHashMap<String, Pair<String, BormTable<?>>> tables = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, BormTable<?>> tablesByName = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<BormTable<?>, List<String>> pendingTables = new ConcurrentHashMap<>();
 
     @Setter
     private DatabaseType type;
@@ -51,13 +74,23 @@ public class BormAPI {
     @Setter
     private @Nullable BormRedisHook redisHook;
 
+    /**
+     * The maximum amount of rows sent to the database in a single JDBC batch.
+     */
+    @Setter
+    private int batchSize = 1000;
+
     public BormAPI(@NonNull String address, @NonNull String database,
                    @NonNull String port, @NonNull String username, @NonNull String password) {
+        this(address, database, port, username, password, ExecutorMode.PLATFORM);
+    }
+
+    public BormAPI(@NonNull String address, @NonNull String database,
+                   @NonNull String port, @NonNull String username, @NonNull String password,
+                   @NonNull ExecutorMode executorMode) {
         this.logger = Logger.getLogger("BORM");
         this.type = DatabaseType.MYSQL;
 
-        this.dbExecutor = Executors.newWorkStealingPool();
-
         HikariConfig config = new HikariConfig();
         config.setMaximumPoolSize(10);
         config.setConnectionTimeout(Duration.ofSeconds(30).toMillis());
@@ -67,6 +100,7 @@ public class BormAPI {
         config.addDataSourceProperty("cachePrepStmts", "true");
         config.addDataSourceProperty("prepStmtCacheSize", "250");
         config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
         config.addDataSourceProperty("serverName", address);
         config.addDataSourceProperty("port", port);
         config.addDataSourceProperty("databaseName", database);
@@ -75,29 +109,53 @@ public class BormAPI {
 
         dataSource = new HikariDataSource(config);
 
+        this.dbExecutor = createExecutor(executorMode, Executors::newWorkStealingPool, dataSource.getMaximumPoolSize());
+
+        this.readDataSource = dataSource;
+        this.readExecutor = dbExecutor;
+        this.groupCommitWriter = null;
+
         registerFieldProcessor(new TypeToken<>() {
         }, new StringListProcessor());
     }
 
     public BormAPI(@NonNull HikariConfig config) {
+        this(config, ExecutorMode.PLATFORM);
+    }
+
+    public BormAPI(@NonNull HikariConfig config, @NonNull ExecutorMode executorMode) {
         this.logger = Logger.getLogger("BORM");
         this.type = config.getJdbcUrl().contains("sqlite") ? DatabaseType.SQLITE : DatabaseType.MYSQL;
 
-        this.dbExecutor = this.type == DatabaseType.SQLITE
-                ? Executors.newSingleThreadExecutor()
-                : Executors.newWorkStealingPool();
-
         dataSource = new HikariDataSource(config);
 
+        this.dbExecutor = createExecutor(executorMode, this.type == DatabaseType.SQLITE
+                ? Executors::newSingleThreadExecutor
+                : Executors::newWorkStealingPool, dataSource.getMaximumPoolSize());
+
+        this.readDataSource = dataSource;
+        this.readExecutor = dbExecutor;
+        this.groupCommitWriter = this.type == DatabaseType.SQLITE ? new GroupCommitWriter(dataSource, dbExecutor) : null;
+
         registerFieldProcessor(new TypeToken<>() {
         }, new StringListProcessor());
     }
 
     public BormAPI(@NonNull File databaseFile) {
+        this(databaseFile, DEFAULT_SQLITE_READ_CONNECTIONS);
+    }
+
+    /**
+     * Creates a SQLite instance with a single writer connection and a pool of read-only
+     * WAL connections serving queries. Reads no longer wait behind queued writes, so a
+     * query may not observe a write that hasn't completed yet. A read connection count
+     * of 0 sends queries through the writer instead.
+     */
+    public BormAPI(@NonNull File databaseFile, int readConnections) {
         this.logger = Logger.getLogger("BORM");
         this.type = DatabaseType.SQLITE;
 
-        this.dbExecutor = Executors.newSingleThreadExecutor();
+        this.dbExecutor = createExecutor(ExecutorMode.PLATFORM, Executors::newSingleThreadExecutor, 1);
 
         if (!databaseFile.exists()) {
             try {
@@ -105,33 +163,74 @@ public class BormAPI {
             } catch (IOException e) {
                 logger.severe("Unable to locate database file!");
                 dataSource = null;
+                readDataSource = null;
+                readExecutor = dbExecutor;
+                groupCommitWriter = null;
                 return;
             }
         }
 
+        dataSource = new HikariDataSource(createSQLiteConfig(databaseFile, 1, false));
+        groupCommitWriter = new GroupCommitWriter(dataSource, dbExecutor);
+
+        if (readConnections <= 0) {
+            readDataSource = dataSource;
+            readExecutor = dbExecutor;
+        } else {
+            readDataSource = new HikariDataSource(createSQLiteConfig(databaseFile, readConnections, true));
+            readExecutor = createExecutor(ExecutorMode.PLATFORM, () -> Executors.newFixedThreadPool(readConnections), readConnections);
+        }
+
+        registerFieldProcessor(new TypeToken<>() {
+        }, new StringListProcessor());
+    }
+
+    private static RowSetFactory createRowSetFactory() {
+        try {
+            return RowSetProvider.newFactory();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Unable to create row set factory", e);
+        }
+    }
+
+    private HikariConfig createSQLiteConfig(@NonNull File databaseFile, int poolSize, boolean readOnly) {
         HikariConfig config = new HikariConfig();
-        config.setMaximumPoolSize(1);
+        config.setMaximumPoolSize(poolSize);
         config.setConnectionTimeout(Duration.ofSeconds(60).toMillis());
         config.setMaxLifetime(Duration.ofMinutes(30).toMillis());
         config.setLeakDetectionThreshold(60000);
         config.setMetricsTrackerFactory(new PrometheusMetricsTrackerFactory());
         config.setJdbcUrl("jdbc:sqlite:" + databaseFile);
-        config.addDataSourceProperty("cachePrepStmts", "true");
-        config.addDataSourceProperty("prepStmtCacheSize", "250");
-        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
-        config.setConnectionInitSql("PRAGMA journal_mode=WAL; " +
-                "PRAGMA synchronous=NORMAL; " +
-                "PRAGMA foreign_keys=ON; " +
-                "PRAGMA busy_timeout=10000;"
-        );
+        config.addDataSourceProperty("journal_mode", "WAL");
+        config.addDataSourceProperty("synchronous", "NORMAL");
+        config.addDataSourceProperty("foreign_keys", "true");
+        config.addDataSourceProperty("busy_timeout", "10000");
 
-        dataSource = new HikariDataSource(config);
+        if (readOnly) {
+            config.setConnectionInitSql("PRAGMA query_only=ON;");
+        }
 
-        registerFieldProcessor(new TypeToken<>() {
-        }, new StringListProcessor());
+        return config;
     }
 
-    public synchronized <O extends BormObject, T extends BormTable<O>> void registerTable(Class<? extends T> tableClass, Consumer<T> consumer) {
+    /**
+     * Creates an executor that rejects queries once its queue is full, as submissions usually come from the
+     * main thread, which must never wait on the database. Writes are submitted as {@link TaskPriority#HIGH}
+     * and always accepted, so saves are never dropped. Waiting can be opted into with
+     * {@link DatabaseExecutor#setOverloadPolicy(OverloadPolicy)}.
+     */
+    private DatabaseExecutor createExecutor(@NonNull ExecutorMode executorMode, @NonNull Supplier<ExecutorService> platformExecutor, int connections) {
+        int capacity = connections * QUEUE_CAPACITY_PER_CONNECTION;
+
+        if (executorMode == ExecutorMode.VIRTUAL) {
+            ExecutorService virtualExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("BORM-DB-", 0).factory());
+            return new DatabaseExecutor(virtualExecutor, capacity, OverloadPolicy.REJECT, connections);
+        }
+
+        return new DatabaseExecutor(platformExecutor.get(), capacity, OverloadPolicy.REJECT);
+    }
+
+    public <O extends BormObject, T extends BormTable<O>> void registerTable(Class<? extends T> tableClass, Consumer<T> consumer) {
         if (tables.containsKey(tableClass.getSimpleName())) {
             logger.warning("Failed to register table " + tableClass.getSimpleName() + ", it's already registered.");
             return;
@@ -147,29 +246,37 @@ public class BormAPI {
                         return;
                     }
 
-                    for (ColumnData columnData : table.getStatements().getColumnData()) {
-                        if (columnData.getColumn().foreignTable().isEmpty()) {
-                            continue;
-                        }
+                    boolean pending = false;
+
+                    synchronized (pendingTables) {
+                        for (ColumnData columnData : table.getStatements().getColumnData()) {
+                            if (columnData.getColumn().foreignTable().isEmpty()) {
+                                continue;
+                            }
+
+                            String foreignTableName = columnData.getColumn().foreignTable();
+                            BormTable<?> foreignTable = getTable(foreignTableName);
 
-                        String foreignTableName = columnData.getColumn().foreignTable();
-                        BormTable<?> foreignTable = getTable(foreignTableName);
-
-                        if (foreignTable == null) {
-                            List<String> tables = pendingTables.getOrDefault(table, new ArrayList<>());
-                            tables.add(foreignTableName);
-                            pendingTables.put(table, tables);
-                            logger.warning("Table " + table.getTable() + " requires " + foreignTableName + " and will be loaded when it's loaded!");
-                            getTables().put(tableClass.getSimpleName(), new Pair<>(table.getTable(), table));
-                            consumer.accept(table);
-                            return;
+                            if (foreignTable == null) {
+                                pendingTables.computeIfAbsent(table, key -> new ArrayList<>()).add(foreignTableName);
+                                logger.warning("Table " + table.getTable() + " requires " + foreignTableName + " and will be loaded when it's loaded!");
+                                addTable(tableClass, table);
+                                pending = true;
+                                break;
+                            }
+
+                            columnData.setForeignKeyData(foreignTable.getStatements().getPrimaryKeyData());
+                            columnData.setForeignTable(foreignTable);
                         }
+                    }
 
-                        columnData.setForeignKeyData(foreignTable.getStatements().getPrimaryKeyData());
-                        columnData.setForeignTable(foreignTable);
+                    // The consumer runs outside the lock, it may register other tables or wait on the database
+                    if (pending) {
+                        consumer.accept(table);
+                        return;
                     }
 
-                    getTables().put(tableClass.getSimpleName(), new Pair<>(table.getTable(), table));
+                    addTable(tableClass, table);
                     loadTable(table);
 
                     consumer.accept(table);
@@ -181,8 +288,13 @@ public class BormAPI {
         }
     }
 
-    private synchronized void loadTable(@NonNull BormTable<?> table) {
-        executeStatement(table.getStatements().getTableCreateStatement(), resultSet -> {
+    private void addTable(@NonNull Class<?> tableClass, @NonNull BormTable<?> table) {
+        tables.put(tableClass.getSimpleName(), new Pair<>(table.getTable(), table));
+        tablesByName.put(table.getTable().toLowerCase(Locale.ROOT), table);
+    }
+
+    private void loadTable(@NonNull BormTable<?> table) {
+        executeStatement(table.getStatements().getTableCreateStatement()).thenCompose(unused -> createIndexes(table)).thenRun(() -> {
             if (!table.isLoadData()) {
                 logger.info("Finished loading table " + table.getTable() + ", data must be manually pulled.");
                 checkForeignTables(table);
@@ -195,98 +307,133 @@ public class BormAPI {
         });
     }
 
-    private synchronized void checkForeignTables(@NonNull BormTable<?> table) {
-        Iterator<Map.Entry<BormTable<?>, List<String>>> iterator = pendingTables.entrySet().iterator();
+    private CompletableFuture<Void> createIndexes(@NonNull BormTable<?> table) {
+        BormStatements<?> statements = table.getStatements();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
 
-        while (iterator.hasNext()) {
-            Map.Entry<BormTable<?>, List<String>> entry = iterator.next();
+        for (BormStatements.IndexData indexData : statements.getIndexData()) {
+            String createStatement = statements.getIndexCreateStatement(indexData);
+            String existsQuery = statements.getIndexExistsQuery();
 
-            if (!entry.getValue().contains(table.getTable())) {
+            if (existsQuery == null) {
+                futures.add(executeStatement(createStatement));
                 continue;
             }
 
-            List<String> newTables = new ArrayList<>(entry.getValue());
-            newTables.remove(table.getTable());
+            AtomicBoolean exists = new AtomicBoolean();
 
-            BormTable<?> pendingTable = entry.getKey();
+            futures.add(executeQuery(existsQuery, result -> {
+                try {
+                    exists.set(result.next() && result.getInt(1) > 0);
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            }, table.getTable(), indexData.name()).thenCompose(unused -> exists.get() ? CompletableFuture.completedFuture(null) : executeStatement(createStatement)));
+        }
 
-            if (!newTables.isEmpty()) {
-                pendingTables.put(pendingTable, newTables);
-                continue;
-            }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).exceptionally(throwable -> {
+            logger.severe("Unable to create the indexes of table " + table.getTable() + ": " + throwable.getMessage());
+            return null;
+        });
+    }
+
+    private void checkForeignTables(@NonNull BormTable<?> table) {
+        synchronized (pendingTables) {
+            Iterator<Map.Entry<BormTable<?>, List<String>>> iterator = pendingTables.entrySet().iterator();
+
+            while (iterator.hasNext()) {
+                Map.Entry<BormTable<?>, List<String>> entry = iterator.next();
 
-            for (ColumnData columnData : pendingTable.getStatements().getColumnData()) {
-                if (!columnData.getColumn().foreignTable().equalsIgnoreCase(table.getTable())) {
+                if (!entry.getValue().contains(table.getTable())) {
                     continue;
                 }
 
-                columnData.setForeignKeyData(table.getStatements().getPrimaryKeyData());
-                columnData.setForeignTable(table);
-            }
+                List<String> newTables = new ArrayList<>(entry.getValue());
+                newTables.remove(table.getTable());
+
+                BormTable<?> pendingTable = entry.getKey();
 
-            loadTable(pendingTable);
-            iterator.remove();
+                if (!newTables.isEmpty()) {
+                    pendingTables.put(pendingTable, newTables);
+                    continue;
+                }
+
+                for (ColumnData columnData : pendingTable.getStatements().getColumnData()) {
+                    if (!columnData.getColumn().foreignTable().equalsIgnoreCase(table.getTable())) {
+                        continue;
+                    }
 
-            logger.info("All foreign tables loaded for " + pendingTable.getTable() + ", it will now be loaded!");
+                    columnData.setForeignKeyData(table.getStatements().getPrimaryKeyData());
+                    columnData.setForeignTable(table);
+                }
+
+                loadTable(pendingTable);
+                iterator.remove();
+
+                logger.info("All foreign tables loaded for " + pendingTable.getTable() + ", it will now be loaded!");
+            }
         }
     }
 
-    public synchronized BormTable<?> getTable(@NonNull String tableName) {
-        return tables.values().stream()
-                .filter(tablePair -> tablePair.getKey().equalsIgnoreCase(tableName))
-                .map(Pair::getValue).findFirst().orElse(null);
+    public BormTable<?> getTable(@NonNull String tableName) {
+        return tablesByName.get(tableName.toLowerCase(Locale.ROOT));
     }
 
-    public void executeStatement(String query, Object... arguments) {
-        executeStatement(query, null, arguments);
+    public CompletableFuture<Void> executeStatement(String query, Object... arguments) {
+        return executeStatement(query, null, arguments);
     }
 
-    public synchronized void executeStatement(@NonNull String query, @Nullable Consumer<ResultSet> consumer, @Nullable Object... arguments) {
-        CompletableFuture.runAsync(() -> {
-            try (Connection connection = dataSource.getConnection()) {
-                try (PreparedStatement statement = connection.prepareStatement(query, PreparedStatement.RETURN_GENERATED_KEYS)) {
-                    if (arguments != null) {
-                        int index = 1;
-                        for (Object argument : arguments) {
-                            statement.setObject(index++, argument);
-                        }
-                    }
+    public CompletableFuture<Void> executeStatement(@NonNull String query, @Nullable Consumer<ResultSet> consumer, @Nullable Object... arguments) {
+        CompletableFuture<Void> future = submitWrite(false, connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(query, PreparedStatement.RETURN_GENERATED_KEYS)) {
+                bindArguments(statement, arguments);
 
-                    statement.executeUpdate();
-                    try (ResultSet result = statement.getGeneratedKeys()) {
-                        if (consumer == null) {
-                            return;
-                        }
+                statement.executeUpdate();
 
-                        consumer.accept(result);
-                    }
+                if (consumer == null) {
+                    return null;
                 }
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
-            }
-        }, dbExecutor).handle((unused, e) -> {
-            if (e == null) {
-                return null;
-            }
 
-            logger.severe("Error executing statement: " + query);
-            e.printStackTrace();
-            return null;
+                CachedRowSet generatedKeys = ROW_SET_FACTORY.createCachedRowSet();
+
+                try (ResultSet result = statement.getGeneratedKeys()) {
+                    generatedKeys.populate(result);
+                }
+
+                return () -> consumer.accept(generatedKeys);
+            }
         });
+
+        future.whenComplete((unused, e) -> logFailure("Error executing statement: " + query, e));
+        return future;
     }
 
-    public synchronized void executeQuery(@NonNull String query, @NonNull Consumer<ResultSet> consumer, @Nullable Object... arguments) {
-        CompletableFuture.runAsync(() -> {
-            try (Connection connection = dataSource.getConnection()) {
-                try (PreparedStatement statement = connection.prepareStatement(query)) {
-                    if (arguments != null) {
-                        int index = 1;
+    public CompletableFuture<Void> executeQuery(@NonNull String query, @NonNull Consumer<ResultSet> consumer, @Nullable Object... arguments) {
+        return executeQuery(query, TaskPriority.NORMAL, consumer, arguments);
+    }
 
-                        for (Object argument : arguments) {
-                            statement.setObject(index++, argument);
-                        }
+    public CompletableFuture<Void> executeQuery(@NonNull String query, @NonNull TaskPriority priority,
+                                                @NonNull Consumer<ResultSet> consumer, @Nullable Object... arguments) {
+        return executeQuery(query, priority, 0, consumer, arguments);
+    }
+
+    /**
+     * Executes the query with the given fetch size, letting the driver read rows in chunks rather
+     * than buffering the whole result. On MySQL {@link Integer#MIN_VALUE} streams rows one by one, while
+     * positive sizes are only honored with {@code useCursorFetch} enabled on the data source, which also
+     * turns every statement into a server side prepared statement. A size of 0 keeps the driver default.
+     */
+    public CompletableFuture<Void> executeQuery(@NonNull String query, @NonNull TaskPriority priority, int fetchSize,
+                                                @NonNull Consumer<ResultSet> consumer, @Nullable Object... arguments) {
+        CompletableFuture<Void> future = submit(readExecutor, priority, () -> {
+            try (Connection connection = readDataSource.getConnection()) {
+                try (PreparedStatement statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    if (fetchSize != 0) {
+                        statement.setFetchSize(fetchSize);
                     }
 
+                    bindArguments(statement, arguments);
+
                     try (ResultSet result = statement.executeQuery()) {
                         consumer.accept(result);
                     }
@@ -294,70 +441,161 @@ public class BormAPI {
             } catch (SQLException e) {
                 throw new RuntimeException(e);
             }
-        }, dbExecutor).handle((unused, e) -> {
-            if (e == null) {
-                return null;
-            }
-
-            logger.severe("Error executing query: " + query);
-            e.printStackTrace();
-            return null;
         });
+
+        future.whenComplete((unused, e) -> logFailure("Error executing query: " + query, e));
+        return future;
     }
 
-    public void executeBatch(@NonNull List<String> queries, @NonNull Consumer<Void> consumer) {
-        executeBatch(queries, new ArrayList<>(), consumer);
+    public CompletableFuture<Void> executeBatch(@NonNull List<String> queries, @NonNull Consumer<Void> consumer) {
+        return executeBatch(queries, new ArrayList<>(), consumer);
     }
 
-    public synchronized void executeBatch(List<String> queries, List<Object[]> parametersList, @NonNull Consumer<Void> consumer) {
-        CompletableFuture.runAsync(() -> {
-            try (Connection connection = dataSource.getConnection()) {
-                connection.setAutoCommit(false);
+    public CompletableFuture<Void> executeBatch(@NonNull String query, @NonNull List<Object[]> parametersList, @NonNull Consumer<Void> consumer) {
+        return executeBatch(Collections.nCopies(parametersList.size(), query), parametersList, consumer);
+    }
 
-                for (int i = 0; i < queries.size(); i++) {
-                    try (PreparedStatement statement = connection.prepareStatement(queries.get(i))) {
+    /**
+     * Executes the queries in a single transaction. Consecutive queries sharing the
+     * same SQL are sent as one JDBC batch, split into chunks of {@link #batchSize}.
+     */
+    public CompletableFuture<Void> executeBatch(List<String> queries, List<Object[]> parametersList, @NonNull Consumer<Void> consumer) {
+        CompletableFuture<Void> future = submitWrite(true, connection -> {
+            int chunkSize = Math.max(1, batchSize);
+            int index = 0;
 
-                        if (parametersList != null && !parametersList.isEmpty() && i < parametersList.size()) {
-                            Object[] params = parametersList.get(i);
+            while (index < queries.size()) {
+                String query = queries.get(index);
 
-                            for (int j = 0; j < params.length; j++) {
-                                statement.setObject(j + 1, params[j]);
-                            }
+                try (PreparedStatement statement = connection.prepareStatement(query)) {
+                    int batched = 0;
+
+                    while (index < queries.size() && queries.get(index).equals(query)) {
+                        if (parametersList != null && index < parametersList.size()) {
+                            bindArguments(statement, parametersList.get(index));
                         }
 
-                        statement.executeUpdate();
+                        statement.addBatch();
+                        index++;
+
+                        if (++batched % chunkSize == 0) {
+                            statement.executeBatch();
+                        }
+                    }
+
+                    if (batched % chunkSize != 0) {
+                        statement.executeBatch();
                     }
                 }
+            }
+
+            return () -> consumer.accept(null);
+        });
 
-                connection.commit();
-                consumer.accept(null);
+        future.whenComplete((unused, e) -> logFailure("Error executing batch", e));
+        return future;
+    }
+
+    /**
+     * Runs a write through the group commit writer when there is one, otherwise on its own
+     * connection. Transactional writes are committed as a whole or rolled back on failure.
+     */
+    private CompletableFuture<Void> submitWrite(boolean transactional, @NonNull GroupCommitWriter.Write write) {
+        if (groupCommitWriter != null) {
+            return groupCommitWriter.submit(write);
+        }
+
+        return submit(dbExecutor, TaskPriority.HIGH, () -> {
+            Runnable callback;
+
+            try (Connection connection = dataSource.getConnection()) {
+                if (!transactional) {
+                    callback = write.execute(connection);
+                } else {
+                    connection.setAutoCommit(false);
+
+                    try {
+                        callback = write.execute(connection);
+                        connection.commit();
+                    } catch (SQLException e) {
+                        connection.rollback();
+                        throw e;
+                    }
+                }
             } catch (SQLException e) {
                 throw new RuntimeException(e);
             }
-        }, dbExecutor).handle((unused, e) -> {
-            if (e != null) {
-                logger.severe("Error executing batch");
-                e.printStackTrace();
+
+            if (callback != null) {
+                callback.run();
             }
-            return null;
         });
     }
 
+    private CompletableFuture<Void> submit(@NonNull DatabaseExecutor executor, @NonNull TaskPriority priority, @NonNull Runnable task) {
+        try {
+            return CompletableFuture.runAsync(task, command -> executor.execute(command, priority));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void logFailure(@NonNull String message, @Nullable Throwable throwable) {
+        if (throwable == null) {
+            return;
+        }
+
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+
+        if (cause instanceof RejectedExecutionException) {
+            logger.warning(message + " (" + cause.getMessage() + ")");
+            return;
+        }
+
+        logger.severe(message);
+        throwable.printStackTrace();
+    }
+
+    private void bindArguments(@NonNull PreparedStatement statement, @Nullable Object[] arguments) throws SQLException {
+        if (arguments == null) {
+            return;
+        }
+
+        for (int i = 0; i < arguments.length; i++) {
+            statement.setObject(i + 1, arguments[i]);
+        }
+    }
+
     public void close() {
         if(dataSource == null || dataSource.isClosed()) {
             return;
         }
 
+        tables.values().forEach(tablePair -> tablePair.getValue().flush());
+        scheduler.shutdownNow();
+
+        shutdownExecutor(dbExecutor);
+
+        if (readExecutor != dbExecutor) {
+            shutdownExecutor(readExecutor);
+        }
+
+        if (readDataSource != null && readDataSource != dataSource) {
+            readDataSource.close();
+        }
+
         dataSource.close();
+    }
 
-        dbExecutor.shutdown();
+    private void shutdownExecutor(@NonNull DatabaseExecutor executor) {
+        executor.shutdown();
 
         try {
-            if (!dbExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
-                dbExecutor.shutdownNow();
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
             }
         } catch (InterruptedException e) {
-            dbExecutor.shutdownNow();
+            executor.shutdownNow();
             Thread.currentThread().interrupt();
         }
     }
@@ -25,4 +25,8 @@ public @interface Column {
 
     boolean cascadeDelete() default false;
 
+    boolean joinFetch() default false;
+
+    boolean indexed() default false;
+
 }
@@ -0,0 +1,25 @@
+package net.bitbylogic.orm.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Declares a database index on the table of a BormObject, created when the table is registered.
+ * Text columns are indexed by a prefix on MySQL, give them a sized dataType such as VARCHAR(64)
+ * to index their full value.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Repeatable(Indexes.class)
+public @interface Index {
+
+    /**
+     * The indexed columns, by column or field name. The order matters for composite indexes.
+     */
+    String[] columns();
+
+    String name() default "";
+
+    boolean unique() default false;
+
+}
@@ -0,0 +1,12 @@
+package net.bitbylogic.orm.annotation;
+
+import java.lang.annotation.*;
+
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+public @interface Indexes {
+
+    Index[] value();
+
+}
@@ -0,0 +1,102 @@
+package net.bitbylogic.orm.data;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import lombok.NonNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounds how many objects a {@link BormTable} keeps in its cache. Size and weight bounds evict
+ * with Caffeine's W-TinyLFU policy, which keeps frequently used objects over recently added ones.
+ * Evicted objects are passed to {@link BormTable#onDataEvicted(BormObject)}, and dirty objects
+ * are written to the database first.
+ *
+ * @param <O> the type of the table's objects
+ */
+public final class BormCachePolicy<O extends BormObject> {
+
+    private long maximumSize = -1;
+    private long maximumWeight = -1;
+    private @Nullable ToIntFunction<? super O> weigher;
+
+    private @Nullable Duration expireAfterAccess;
+    private @Nullable Duration expireAfterWrite;
+
+    private BormCachePolicy() {
+    }
+
+    /**
+     * @return a policy that never evicts, the default of every table
+     */
+    public static <O extends BormObject> BormCachePolicy<O> unbounded() {
+        return new BormCachePolicy<>();
+    }
+
+    /**
+     * Limits the amount of cached objects.
+     */
+    public BormCachePolicy<O> maximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+        this.maximumWeight = -1;
+        this.weigher = null;
+        return this;
+    }
+
+    /**
+     * Limits the total weight of the cached objects, as computed by the weigher when an object is cached.
+     */
+    public BormCachePolicy<O> maximumWeight(long maximumWeight, @NonNull ToIntFunction<? super O> weigher) {
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.maximumSize = -1;
+        return this;
+    }
+
+    /**
+     * Evicts objects that haven't been read or written for the duration.
+     */
+    public BormCachePolicy<O> expireAfterAccess(@NonNull Duration duration) {
+        this.expireAfterAccess = duration;
+        return this;
+    }
+
+    /**
+     * Evicts objects once the duration has passed since they were cached or replaced.
+     */
+    public BormCachePolicy<O> expireAfterWrite(@NonNull Duration duration) {
+        this.expireAfterWrite = duration;
+        return this;
+    }
+
+    public boolean isUnbounded() {
+        return maximumSize < 0 && maximumWeight < 0 && expireAfterAccess == null && expireAfterWrite == null;
+    }
+
+    @SuppressWarnings("unchecked")
+    Caffeine<Object, O> newBuilder() {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().scheduler(Scheduler.systemScheduler());
+
+        if (maximumSize >= 0) {
+            builder.maximumSize(maximumSize);
+        }
+
+        if (expireAfterAccess != null) {
+            builder.expireAfterAccess(expireAfterAccess);
+        }
+
+        if (expireAfterWrite != null) {
+            builder.expireAfterWrite(expireAfterWrite);
+        }
+
+        if (weigher == null) {
+            return (Caffeine<Object, O>) (Caffeine<?, ?>) builder;
+        }
+
+        ToIntFunction<? super O> objectWeigher = weigher;
+        return builder.maximumWeight(maximumWeight).weigher((Object id, O object) -> objectWeigher.applyAsInt(object));
+    }
+
+}
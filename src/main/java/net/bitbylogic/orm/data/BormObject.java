@@ -1,9 +1,15 @@
 package net.bitbylogic.orm.data;
 
 import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.NonNull;
 import lombok.Setter;
 
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 @SuppressWarnings("ALL")
 @NoArgsConstructor
 public class BormObject {
@@ -11,6 +17,17 @@ public class BormObject {
     @Setter(AccessLevel.PROTECTED)
     protected BormTable owningTable;
 
+    @Getter(AccessLevel.PACKAGE)
+    private final Set<String> dirtyFields = ConcurrentHashMap.newKeySet();
+
+    @Getter(AccessLevel.PACKAGE)
+    @Setter(AccessLevel.PACKAGE)
+    private volatile boolean persisted;
+
+    @Getter(AccessLevel.PACKAGE)
+    @Setter(AccessLevel.PACKAGE)
+    private volatile Object[] persistedValues;
+
     public void save() {
         if(owningTable == null) {
             return;
@@ -27,4 +44,14 @@ public class BormObject {
         owningTable.delete(this);
     }
 
+    /**
+     * Marks fields as changed, so the next save only has to write them when the
+     * owning table tracks changes.
+     *
+     * @param fieldNames the names of the changed fields, or the column names of fields in sub objects
+     */
+    public void markDirty(@NonNull String... fieldNames) {
+        dirtyFields.addAll(Arrays.asList(fieldNames));
+    }
+
 }
@@ -0,0 +1,430 @@
+package net.bitbylogic.orm.data;
+
+import lombok.NonNull;
+import net.bitbylogic.orm.executor.TaskPriority;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A select of a table's rows, filtered, ordered and limited by the database. Fields are referenced
+ * by field or column name, and conditions compile to parameterized SQL with their values converted
+ * the same way as when saving. Obtained through {@link BormTable#query()}.
+ *
+ * <pre>{@code
+ * table.query().where("guild").eq(guildId).where("rank").gte(3)
+ *         .orderBy("rank", false).limit(10)
+ *         .fetch(members -> ...);
+ * }</pre>
+ */
+public class BormQuery<O extends BormObject> {
+
+    private final BormTable<O> table;
+
+    private final List<String> conditions = new ArrayList<>();
+    private final List<Object> arguments = new ArrayList<>();
+    private final List<String> orders = new ArrayList<>();
+
+    private long limit = -1;
+    private long offset;
+
+    private boolean cache = true;
+    private @NonNull TaskPriority priority = TaskPriority.NORMAL;
+    private @NonNull Duration timeout = Duration.ofSeconds(30);
+
+    BormQuery(@NonNull BormTable<O> table) {
+        this.table = table;
+    }
+
+    public Condition where(@NonNull String fieldName) {
+        return new Condition(getColumnData(fieldName));
+    }
+
+    public BormQuery<O> orderBy(@NonNull String fieldName) {
+        return orderBy(fieldName, true);
+    }
+
+    public BormQuery<O> orderBy(@NonNull String fieldName, boolean ascending) {
+        orders.add(qualify(getColumnData(fieldName)) + (ascending ? " ASC" : " DESC"));
+        return this;
+    }
+
+    public BormQuery<O> limit(long limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    public BormQuery<O> offset(long offset) {
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Determines whether fetched objects are added to the table's cache, true by default. Objects
+     * that are already cached are returned as the cached instance.
+     */
+    public BormQuery<O> cache(boolean cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    public BormQuery<O> priority(@NonNull TaskPriority priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * Sets how long {@link #iterate(int)} waits for a page, including the foreign references of its
+     * rows, before failing. 30 seconds by default.
+     */
+    public BormQuery<O> timeout(@NonNull Duration timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Fetches the matching objects in the order of the result, once their foreign references have been
+     * loaded. The list is empty if the query fails.
+     */
+    public void fetch(@NonNull Consumer<List<O>> consumer) {
+        JoinPlan plan = table.getJoinPlan();
+        List<Object> queryArguments = new ArrayList<>(arguments);
+
+        fetchPage(plan, plan.getSelectQuery(getCondition(), getClauses(queryArguments)), queryArguments, cache,
+                page -> consumer.accept(page == null ? new ArrayList<>() : page.objects()));
+    }
+
+    /**
+     * Streams every matching object, reading the table in pages of batchSize rows with keyset pagination
+     * on the primary key, so no page has to skip over the rows before it. Each page is a separate query,
+     * run when the stream reaches it, and is decoded once its rows have been read. The ordering and limits
+     * of the query are ignored, rows are returned in primary key order. Objects are never added to the
+     * table's cache, whatever {@link #cache(boolean)} is set to.
+     * <p>
+     * Consuming the stream blocks while a page is fetched, so it must not be consumed on a database thread.
+     * A page that takes longer than the {@link #timeout(Duration)} fails the stream.
+     */
+    public Stream<O> iterate(int batchSize) {
+        ColumnData primaryKeyData = table.getStatements().getPrimaryKeyData();
+
+        if (primaryKeyData == null) {
+            throw new IllegalStateException("Table " + table.getTable() + " has no primary key to iterate by");
+        }
+
+        int pageSize = Math.max(1, batchSize);
+        JoinPlan plan = table.getJoinPlan();
+        String primaryKey = qualify(primaryKeyData);
+
+        Iterator<List<O>> pages = new Iterator<>() {
+
+            private @Nullable Page<O> page;
+            private @Nullable List<O> next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null) {
+                    if (page != null && (page.rows() < pageSize || page.lastKey() == null)) {
+                        return false;
+                    }
+
+                    List<String> pageConditions = new ArrayList<>(conditions);
+                    List<Object> pageArguments = new ArrayList<>(arguments);
+
+                    if (page != null) {
+                        pageConditions.add(primaryKey + " > ?");
+                        pageArguments.add(page.lastKey());
+                    }
+
+                    pageArguments.add(pageSize);
+
+                    String query = plan.getSelectQuery(pageConditions.isEmpty() ? null : String.join(" AND ", pageConditions),
+                            " ORDER BY " + primaryKey + " ASC LIMIT ?");
+
+                    CompletableFuture<Page<O>> future = new CompletableFuture<>();
+                    fetchPage(plan, query, pageArguments, false, future::complete);
+
+                    try {
+                        page = future.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).join();
+                    } catch (CompletionException exception) {
+                        throw new IllegalStateException("Timed out fetching the next page of table " + table.getTable(), exception);
+                    }
+
+                    if (page == null) {
+                        throw new IllegalStateException("Unable to fetch the next page of table " + table.getTable());
+                    }
+
+                    if (!page.objects().isEmpty()) {
+                        next = page.objects();
+                    }
+                }
+
+                return true;
+            }
+
+            @Override
+            public List<O> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                List<O> objects = next;
+                next = null;
+                return objects;
+            }
+
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .flatMap(List::stream);
+    }
+
+    /**
+     * Runs a select of the join plan and decodes its rows, adding them to the table's cache if cacheRows
+     * is set. The consumer gets null if the query fails.
+     */
+    private void fetchPage(@NonNull JoinPlan plan, @NonNull String query, @NonNull List<Object> queryArguments,
+                           boolean cacheRows, @NonNull Consumer<Page<O>> consumer) {
+        List<CompletableFuture<Optional<O>>> rows = new ArrayList<>();
+        Object[] lastKey = new Object[1];
+
+        table.getBormAPI().executeQuery(query, priority, result -> {
+            try {
+                RowDecoder<O> decoder = table.getRowDecoder();
+                int[] columnIndexes = decoder.getColumnIndexes(result.getMetaData());
+                int[][] joinIndexes = plan.getColumnIndexes(result.getMetaData());
+
+                while (result.next()) {
+                    Object[] rawValues = decoder.read(result, columnIndexes);
+                    CompletableFuture<Optional<O>> row = new CompletableFuture<>();
+
+                    rows.add(row);
+
+                    if (decoder.getPrimaryKeyColumn() != -1) {
+                        lastKey[0] = rawValues[decoder.getPrimaryKeyColumn()];
+                    }
+
+                    table.loadObject(rawValues, plan.read(result, joinIndexes),
+                            o -> row.complete(cacheRows ? o.map(table::cacheLoadedData) : o));
+                }
+            } catch (SQLException exception) {
+                throw new RuntimeException(exception);
+            } finally {
+                table.dispatchForeignLoads();
+            }
+        }, queryArguments.toArray()).whenComplete((unused, throwable) -> {
+            if (throwable != null) {
+                consumer.accept(null);
+                return;
+            }
+
+            CompletableFuture.allOf(rows.toArray(new CompletableFuture[0])).thenRun(() -> {
+                List<O> objects = new ArrayList<>();
+                rows.forEach(row -> row.join().ifPresent(objects::add));
+
+                consumer.accept(new Page<>(objects, rows.size(), lastKey[0]));
+            });
+        });
+    }
+
+    public void fetchFirst(@NonNull Consumer<Optional<O>> consumer) {
+        limit(1).fetch(objects -> consumer.accept(objects.stream().findFirst()));
+    }
+
+    /**
+     * Fetches only the given fields of the matching rows, without building objects. Each row holds the
+     * values in the order of the fields, foreign fields are returned as the referenced ids.
+     */
+    public void fetchValues(@NonNull Consumer<List<Object[]>> consumer, @NonNull String... fieldNames) {
+        List<ColumnData> columns = table.getStatements().getColumnData();
+        int[] positions = new int[fieldNames.length];
+        List<String> selectedColumns = new ArrayList<>();
+
+        for (int i = 0; i < fieldNames.length; i++) {
+            ColumnData columnData = getColumnData(fieldNames[i]);
+
+            positions[i] = columns.indexOf(columnData);
+            selectedColumns.add(qualify(columnData));
+        }
+
+        List<Object[]> rows = new ArrayList<>();
+        List<Object> queryArguments = new ArrayList<>(arguments);
+
+        String query = String.format("SELECT %s FROM %s%s%s;", String.join(", ", selectedColumns), table.getTable(),
+                getCondition() == null ? "" : " WHERE " + getCondition(), getClauses(queryArguments));
+
+        table.getBormAPI().executeQuery(query, priority, result -> {
+            try {
+                RowDecoder<O> decoder = table.getRowDecoder();
+
+                while (result.next()) {
+                    Object[] values = new Object[positions.length];
+
+                    for (int i = 0; i < positions.length; i++) {
+                        Object value = result.getObject(i + 1);
+                        values[i] = columns.get(positions[i]).getColumn().foreignTable().isEmpty() ? decoder.decode(positions[i], value) : value;
+                    }
+
+                    rows.add(values);
+                }
+            } catch (SQLException exception) {
+                throw new RuntimeException(exception);
+            }
+        }, queryArguments.toArray()).whenComplete((unused, throwable) -> consumer.accept(throwable == null ? rows : new ArrayList<>()));
+    }
+
+    /**
+     * Counts the matching rows, ignoring the ordering and limits. -1 if the query fails.
+     */
+    public void count(@NonNull Consumer<Long> consumer) {
+        long[] count = {-1};
+        String query = String.format("SELECT COUNT(*) FROM %s%s;", table.getTable(), getCondition() == null ? "" : " WHERE " + getCondition());
+
+        table.getBormAPI().executeQuery(query, priority, result -> {
+            try {
+                if (result.next()) {
+                    count[0] = result.getLong(1);
+                }
+            } catch (SQLException exception) {
+                throw new RuntimeException(exception);
+            }
+        }, arguments.toArray()).whenComplete((unused, throwable) -> consumer.accept(throwable == null ? count[0] : -1L));
+    }
+
+    private ColumnData getColumnData(@NonNull String fieldName) {
+        return table.getStatements().findColumnData(fieldName)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown field " + fieldName + " in table " + table.getTable()));
+    }
+
+    private String qualify(@NonNull ColumnData columnData) {
+        return table.getTable() + "." + columnData.getName();
+    }
+
+    private @Nullable String getCondition() {
+        return conditions.isEmpty() ? null : String.join(" AND ", conditions);
+    }
+
+    private String getClauses(@NonNull List<Object> queryArguments) {
+        StringBuilder clauses = new StringBuilder();
+
+        if (!orders.isEmpty()) {
+            clauses.append(" ORDER BY ").append(String.join(", ", orders));
+        }
+
+        if (limit >= 0 || offset > 0) {
+            clauses.append(" LIMIT ?");
+            queryArguments.add(limit >= 0 ? limit : Long.MAX_VALUE);
+        }
+
+        if (offset > 0) {
+            clauses.append(" OFFSET ?");
+            queryArguments.add(offset);
+        }
+
+        return clauses.toString();
+    }
+
+    private Object toArgument(@NonNull ColumnData columnData, @Nullable Object value) {
+        if (value == null || columnData.getColumn().foreignTable().isEmpty()) {
+            return table.getStatements().toColumnValue(columnData, value);
+        }
+
+        if (value instanceof BormObject object && columnData.getForeignTable() != null) {
+            value = columnData.getForeignTable().getStatements().getId(object);
+        }
+
+        if (value instanceof BormRef<?> reference) {
+            value = reference.getId();
+        }
+
+        return value == null ? null : value.toString();
+    }
+
+    private record Page<O>(List<O> objects, int rows, @Nullable Object lastKey) {
+    }
+
+    public class Condition {
+
+        private final ColumnData columnData;
+        private final String column;
+
+        private Condition(@NonNull ColumnData columnData) {
+            this.columnData = columnData;
+            this.column = qualify(columnData);
+        }
+
+        public BormQuery<O> eq(@Nullable Object value) {
+            return value == null ? isNull() : compare("=", value);
+        }
+
+        public BormQuery<O> notEq(@Nullable Object value) {
+            return value == null ? isNotNull() : compare("<>", value);
+        }
+
+        public BormQuery<O> gt(@NonNull Object value) {
+            return compare(">", value);
+        }
+
+        public BormQuery<O> gte(@NonNull Object value) {
+            return compare(">=", value);
+        }
+
+        public BormQuery<O> lt(@NonNull Object value) {
+            return compare("<", value);
+        }
+
+        public BormQuery<O> lte(@NonNull Object value) {
+            return compare("<=", value);
+        }
+
+        /**
+         * Matches values from the lower bound to the upper bound, both inclusive.
+         */
+        public BormQuery<O> between(@NonNull Object from, @NonNull Object to) {
+            conditions.add(column + " BETWEEN ? AND ?");
+            arguments.add(toArgument(columnData, from));
+            arguments.add(toArgument(columnData, to));
+            return BormQuery.this;
+        }
+
+        public BormQuery<O> in(@NonNull Object... values) {
+            return in(Arrays.asList(values));
+        }
+
+        public BormQuery<O> in(@NonNull Collection<?> values) {
+            if (values.isEmpty()) {
+                conditions.add("1 = 0");
+                return BormQuery.this;
+            }
+
+            conditions.add(column + " IN (" + String.join(", ", Collections.nCopies(values.size(), "?")) + ")");
+            values.forEach(value -> arguments.add(toArgument(columnData, value)));
+            return BormQuery.this;
+        }
+
+        public BormQuery<O> isNull() {
+            conditions.add(column + " IS NULL");
+            return BormQuery.this;
+        }
+
+        public BormQuery<O> isNotNull() {
+            conditions.add(column + " IS NOT NULL");
+            return BormQuery.this;
+        }
+
+        private BormQuery<O> compare(@NonNull String operator, @NonNull Object value) {
+            conditions.add(column + " " + operator + " ?");
+            arguments.add(toArgument(columnData, value));
+            return BormQuery.this;
+        }
+
+    }
+
+}
@@ -0,0 +1,200 @@
+package net.bitbylogic.orm.data;
+
+import lombok.NonNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A lazy reference to an object of a foreign table. Loading a row only stores the referenced
+ * id, the object is fetched from the foreign table, cache first, the first time it's loaded.
+ * Used as a foreign column's type, on its own or as the element of a list.
+ *
+ * @param <T> the type of the referenced object
+ */
+public final class BormRef<T extends BormObject> {
+
+    private final @Nullable BormTable<T> table;
+    private final @Nullable Object id;
+
+    private volatile @Nullable T value;
+
+    BormRef(@NonNull BormTable<T> table, @NonNull Object id) {
+        this.table = table;
+        this.id = id;
+    }
+
+    private BormRef(@NonNull T value) {
+        this.table = null;
+        this.id = null;
+        this.value = value;
+    }
+
+    /**
+     * @return a reference to an object that's already loaded
+     */
+    public static <T extends BormObject> BormRef<T> of(@NonNull T object) {
+        return new BormRef<>(object);
+    }
+
+    /**
+     * @return a reference to the object with the given id in the table, which isn't loaded until needed
+     */
+    public static <T extends BormObject> BormRef<T> of(@NonNull BormTable<T> table, @NonNull Object id) {
+        return new BormRef<>(table, id);
+    }
+
+    /**
+     * @return the id of the referenced object, or null if it was created from an object without an owning table
+     */
+    public @Nullable Object getId() {
+        T loaded = value;
+
+        if (loaded == null) {
+            return id;
+        }
+
+        BormTable<?> owningTable = table == null ? loaded.owningTable : table;
+        return owningTable == null ? id : owningTable.getStatements().getId(loaded);
+    }
+
+    public boolean isLoaded() {
+        return value != null;
+    }
+
+    /**
+     * Gets the referenced object if it's loaded or cached by its table, without querying the database.
+     */
+    public Optional<T> get() {
+        T loaded = value;
+
+        if (loaded != null || table == null) {
+            return Optional.ofNullable(loaded);
+        }
+
+        Optional<T> cachedData = table.getDataById(id);
+        cachedData.ifPresent(data -> value = data);
+        return cachedData;
+    }
+
+    /**
+     * Loads the referenced object, from the table's cache if it's there, otherwise from the database.
+     * Empty if the object doesn't exist.
+     */
+    public void load(@NonNull Consumer<Optional<T>> consumer) {
+        Optional<T> loaded = get();
+
+        if (loaded.isPresent() || table == null) {
+            consumer.accept(loaded);
+            return;
+        }
+
+        table.queueForeignLoad(id, data -> {
+            data.ifPresent(object -> value = object);
+            consumer.accept(data);
+        });
+        table.dispatchPendingLoads();
+    }
+
+    /**
+     * Loads every referenced object, fetching the uncached ones of a table together. The loaded
+     * objects keep the order of the references, missing objects are left out.
+     */
+    public static <T extends BormObject> void loadAll(@NonNull Collection<BormRef<T>> references, @NonNull Consumer<List<T>> consumer) {
+        if (references.isEmpty()) {
+            consumer.accept(new ArrayList<>());
+            return;
+        }
+
+        List<BormRef<T>> referenceList = new ArrayList<>(references);
+        Object[] loadedData = new Object[referenceList.size()];
+        AtomicInteger remaining = new AtomicInteger(referenceList.size());
+        Set<BormTable<T>> tables = new HashSet<>();
+
+        for (int i = 0; i < referenceList.size(); i++) {
+            BormRef<T> reference = referenceList.get(i);
+            int index = i;
+
+            Consumer<Optional<T>> dataConsumer = data -> {
+                loadedData[index] = data.orElse(null);
+
+                if (remaining.decrementAndGet() != 0) {
+                    return;
+                }
+
+                List<T> list = new ArrayList<>();
+
+                for (Object object : loadedData) {
+                    if (object != null) {
+                        list.add((T) object);
+                    }
+                }
+
+                consumer.accept(list);
+            };
+
+            Optional<T> loaded = reference.get();
+
+            if (loaded.isPresent() || reference.table == null) {
+                dataConsumer.accept(loaded);
+                continue;
+            }
+
+            reference.table.queueForeignLoad(reference.id, data -> {
+                data.ifPresent(object -> reference.value = object);
+                dataConsumer.accept(data);
+            });
+            tables.add(reference.table);
+        }
+
+        tables.forEach(BormTable::dispatchPendingLoads);
+    }
+
+    /**
+     * @return whether the field is a list of references
+     */
+    public static boolean isReferenceList(@NonNull Field field) {
+        if (!List.class.isAssignableFrom(field.getType()) || !(field.getGenericType() instanceof ParameterizedType parameterizedType)) {
+            return false;
+        }
+
+        Type elementType = parameterizedType.getActualTypeArguments()[0];
+
+        if (elementType instanceof ParameterizedType parameterizedElement) {
+            elementType = parameterizedElement.getRawType();
+        }
+
+        return elementType == BormRef.class;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+
+        if (!(object instanceof BormRef<?> reference)) {
+            return false;
+        }
+
+        Object referenceId = getId();
+        return referenceId == null ? value != null && value == reference.value : referenceId.equals(reference.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        Object referenceId = getId();
+        return referenceId == null ? System.identityHashCode(value) : referenceId.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "BormRef(" + getId() + ")";
+    }
+
+}
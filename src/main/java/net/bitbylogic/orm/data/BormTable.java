@@ -1,17 +1,21 @@
 package net.bitbylogic.orm.data;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 import net.bitbylogic.orm.BormAPI;
-import net.bitbylogic.orm.annotation.Column;
 import net.bitbylogic.orm.data.statements.BormStatements;
+import net.bitbylogic.orm.executor.TaskPriority;
 import net.bitbylogic.orm.processor.FieldProcessor;
-import net.bitbylogic.orm.processor.impl.DefaultFieldProcessor;
+import net.bitbylogic.orm.redis.BormRedisHook;
 import net.bitbylogic.orm.redis.BormRedisUpdateType;
 import net.bitbylogic.utils.HashMapUtil;
 import net.bitbylogic.utils.ListUtil;
 import net.bitbylogic.utils.Pair;
-import net.bitbylogic.utils.StringProcessor;
 import net.bitbylogic.utils.reflection.NamedParameter;
 import net.bitbylogic.utils.reflection.ReflectionUtil;
 import net.bitbylogic.utils.reflection.TypeToken;
@@ -22,25 +26,104 @@ import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Getter
 public class BormTable<O extends BormObject> {
 
+    private static final int FOREIGN_LOAD_CHUNK_SIZE = 500;
+    private static final int REDIS_CHANGE_CHUNK_SIZE = 500;
+    private static final int MAX_WRITE_BEHIND_ATTEMPTS = 3;
+
     private final BormAPI bormAPI;
 
     private final String table;
     private final boolean loadData;
     private final Class<O> objectClass;
 
-    private final ConcurrentHashMap<Object, O> dataMap;
+    @Getter(AccessLevel.NONE)
+    private volatile ConcurrentMap<Object, O> dataMap;
     private final BormStatements<O> statements;
 
     private Constructor<O> objectConstructor;
 
+    @Getter(AccessLevel.NONE)
+    private volatile @Nullable RowDecoder<O> rowDecoder;
+
+    @Getter(AccessLevel.NONE)
+    private volatile @Nullable JoinPlan joinPlan;
+
+    @Getter(AccessLevel.NONE)
+    private final Map<String, ColumnIndex<O>> indexes = new HashMap<>();
+
+    @Getter(AccessLevel.NONE)
+    private final Map<String, List<Consumer<Optional<O>>>> pendingLoads = new LinkedHashMap<>();
+
+    @Getter(AccessLevel.NONE)
+    private final Map<Object, List<Consumer<Optional<O>>>> pendingDataLoads = new HashMap<>();
+
+    @Getter(AccessLevel.NONE)
+    private final ConcurrentHashMap<Object, PendingSave<O>> pendingSaves = new ConcurrentHashMap<>();
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+
+    /**
+     * Evicted objects whose changes are still being written, returned by loads of their id in place of the old row.
+     */
+    @Getter(AccessLevel.NONE)
+    private final ConcurrentHashMap<Object, O> evictingData = new ConcurrentHashMap<>();
+
+    @Getter(AccessLevel.NONE)
+    private volatile @Nullable Cache<Object, Boolean> missingIds;
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong missingInvalidations = new AtomicLong();
+
+    private volatile @Nullable ScheduledFuture<?> writeBehindTask;
+    private volatile int writeBehindBatchSize;
+
+    /**
+     * Determines whether saves of already persisted objects only write their changed columns.
+     */
+    @Setter
+    private @NonNull ChangeTracking changeTracking = ChangeTracking.NONE;
+
+    private BormCachePolicy<O> cachePolicy = BormCachePolicy.unbounded();
+
+    /**
+     * The fetch size used while loading the table, see {@link BormAPI#executeQuery(String, TaskPriority, int, Consumer, Object...)}.
+     * Setting it keeps memory flat while loading large tables, 0 lets the driver buffer the whole result.
+     * On MySQL use {@link Integer#MIN_VALUE} to stream the rows.
+     */
+    @Setter
+    private int loadFetchSize;
+
+    /**
+     * The amount of rows between calls to {@link #onDataLoadProgress(int, double)}.
+     */
+    @Setter
+    private int loadProgressInterval = 10000;
+
+    /**
+     * The amount of primary key ranges the table is split into while loading, each read
+     * concurrently on its own connection. Useful parallelism is bounded by the read pool size.
+     */
+    @Setter
+    private int loadPartitions = 1;
+
     public BormTable(BormAPI bormAPI, Class<O> objectClass, String table, boolean loadData) {
         this.bormAPI = bormAPI;
         this.table = table;
@@ -59,6 +142,25 @@ public class BormTable<O extends BormObject> {
 
             O tempObject = emptyConstructor.newInstance();
             statements.loadColumnData(tempObject, new ArrayList<>());
+            statements.loadIndexData(objectClass);
+            statements.compileStatements();
+
+            List<ColumnData> columns = statements.getColumnData();
+
+            for (int i = 0; i < columns.size(); i++) {
+                ColumnData columnData = columns.get(i);
+
+                if (!columnData.getColumn().indexed()) {
+                    continue;
+                }
+
+                if (!columnData.getColumn().foreignTable().isEmpty()) {
+                    log("Unable to index field " + columnData.getField().getName() + ", foreign columns can't be indexed.");
+                    continue;
+                }
+
+                indexes.put(columnData.getField().getName().toLowerCase(Locale.ROOT), new ColumnIndex<>(columnData, i));
+            }
 
             List<NamedParameter> namedParameters = statements.getColumnData().stream().map(data -> data.asNamedParameter(null)).toList();
 
@@ -80,64 +182,200 @@ public class BormTable<O extends BormObject> {
 
     public void loadData(@NonNull Runnable completeRunnable) {
         dataMap.clear();
+        indexes.values().forEach(ColumnIndex::clear);
 
         log("Retrieving data from database...");
-        bormAPI.executeQuery(String.format("SELECT * FROM %s;", table), result -> {
-            try {
-                if (result == null || !result.next()) {
-                    log("No data found - finished retrieving data.");
 
-                    completeRunnable.run();
-                    onDataLoaded();
-                    return;
+        if (loadPartitions > 1 && statements.getPrimaryKeyData() != null) {
+            loadPartitioned(completeRunnable);
+            return;
+        }
+
+        JoinPlan plan = getJoinPlan();
+        long startTime = System.nanoTime();
+        AtomicInteger rowsLoaded = new AtomicInteger();
+
+        bormAPI.executeQuery(plan.getSelectQuery(null), TaskPriority.NORMAL, loadFetchSize,
+                result -> readRows(result, plan, rowsLoaded, startTime)
+        ).whenComplete((unused, throwable) -> finishLoad(rowsLoaded.get(), throwable, completeRunnable));
+    }
+
+    private void loadPartitioned(@NonNull Runnable completeRunnable) {
+        String primaryKey = statements.getPrimaryKeyData().getName();
+        JoinPlan plan = getJoinPlan();
+        long startTime = System.nanoTime();
+        AtomicInteger rowsLoaded = new AtomicInteger();
+
+        findPartitionBoundaries(primaryKey).thenCompose(boundaries -> {
+            CompletableFuture<?>[] futures = new CompletableFuture[boundaries.size() + 1];
+
+            for (int i = 0; i <= boundaries.size(); i++) {
+                List<String> conditions = new ArrayList<>();
+                List<Object> arguments = new ArrayList<>();
+
+                if (i > 0) {
+                    conditions.add(plan.qualify(primaryKey) + " >= ?");
+                    arguments.add(boundaries.get(i - 1));
+                }
+
+                if (i < boundaries.size()) {
+                    conditions.add(plan.qualify(primaryKey) + " < ?");
+                    arguments.add(boundaries.get(i));
                 }
 
-                do {
-                    loadObject(result, o -> o.ifPresent(data -> {
-                        dataMap.put(statements.getId(data), data);
-                        data.setOwningTable(this);
+                String query = plan.getSelectQuery(conditions.isEmpty() ? null : String.join(" AND ", conditions));
+
+                futures[i] = bormAPI.executeQuery(query, TaskPriority.NORMAL, loadFetchSize,
+                        result -> readRows(result, plan, rowsLoaded, startTime), arguments.toArray());
+            }
+
+            return CompletableFuture.allOf(futures);
+        }).whenComplete((unused, throwable) -> finishLoad(rowsLoaded.get(), throwable, completeRunnable));
+    }
+
+    /**
+     * Finds the primary keys splitting the table into {@link #loadPartitions} ranges. Numeric keys split
+     * the range between the smallest and largest key, other keys are read once in order and every n-th
+     * key becomes a boundary.
+     */
+    private CompletableFuture<List<Object>> findPartitionBoundaries(@NonNull String primaryKey) {
+        List<Object> boundaries = new ArrayList<>();
+
+        if (isIntegral(statements.getPrimaryKeyData().getField().getType())) {
+            return bormAPI.executeQuery(String.format("SELECT MIN(%s), MAX(%s) FROM %s;", primaryKey, primaryKey, table), result -> {
+                try {
+                    if (!result.next() || result.getObject(1) == null) {
+                        return;
+                    }
+
+                    long min = result.getLong(1);
+                    long range = result.getLong(2) - min;
+                    long partitions = Math.min(loadPartitions, range + 1);
 
-                        onDataAdded(data);
-                    }));
-                } while (result.next());
+                    for (long i = 1; i < partitions; i++) {
+                        boundaries.add(min + range / partitions * i + Math.min(i, range % partitions));
+                    }
+                } catch (SQLException exception) {
+                    throw new RuntimeException(exception);
+                }
+            }).thenApply(unused -> boundaries);
+        }
 
-                log("Finished retrieving data, loaded " + dataMap.size() + " object(s).");
+        AtomicLong rowCount = new AtomicLong();
 
-                completeRunnable.run();
-                onDataLoaded();
+        return bormAPI.executeQuery(String.format("SELECT COUNT(*) FROM %s;", table), result -> {
+            try {
+                if (result.next()) {
+                    rowCount.set(result.getLong(1));
+                }
             } catch (SQLException exception) {
                 throw new RuntimeException(exception);
             }
+        }).thenCompose(unused -> {
+            long partitionSize = rowCount.get() / loadPartitions;
+
+            if (partitionSize == 0) {
+                return CompletableFuture.completedFuture(boundaries);
+            }
+
+            return bormAPI.executeQuery(String.format("SELECT %s FROM %s ORDER BY %s;", primaryKey, table, primaryKey), TaskPriority.NORMAL, loadFetchSize, result -> {
+                try {
+                    long row = 0;
+
+                    while (boundaries.size() < loadPartitions - 1 && result.next()) {
+                        if (++row % partitionSize == 0) {
+                            boundaries.add(result.getObject(1));
+                        }
+                    }
+                } catch (SQLException exception) {
+                    throw new RuntimeException(exception);
+                }
+            }).thenApply(ignored -> boundaries);
         });
     }
 
+    private static boolean isIntegral(@NonNull Class<?> type) {
+        return type == int.class || type == Integer.class || type == long.class || type == Long.class
+                || type == short.class || type == Short.class || type == byte.class || type == Byte.class;
+    }
+
+    private void readRows(@NonNull ResultSet result, @NonNull JoinPlan plan, @NonNull AtomicInteger rowsLoaded, long startTime) {
+        try {
+            int[] columnIndexes = getRowDecoder().getColumnIndexes(result.getMetaData());
+            int[][] joinIndexes = plan.getColumnIndexes(result.getMetaData());
+
+            while (result.next()) {
+                loadObject(getRowDecoder().read(result, columnIndexes), plan.read(result, joinIndexes), o -> o.ifPresent(data -> {
+                    dataMap.put(statements.getId(data), data);
+                    index(data);
+                    data.setOwningTable(this);
+
+                    onDataAdded(data);
+                }));
+
+                int rows = rowsLoaded.incrementAndGet();
+
+                if (loadProgressInterval > 0 && rows % loadProgressInterval == 0) {
+                    onDataLoadProgress(rows, rows / Math.max(1e-9, (System.nanoTime() - startTime) / 1e9));
+                }
+            }
+        } catch (SQLException exception) {
+            throw new RuntimeException(exception);
+        } finally {
+            dispatchForeignLoads();
+        }
+    }
+
+    /**
+     * Completes a load. A failed load is reported through {@link #onDataLoadFailed(Throwable)} instead of
+     * {@link #onDataLoaded()}, the complete runnable runs either way so tables waiting on this one still load.
+     */
+    private void finishLoad(int rowsLoaded, @Nullable Throwable throwable, @NonNull Runnable completeRunnable) {
+        if (throwable != null) {
+            log("Unable to retrieve data, a query failed after " + rowsLoaded + " row(s) were loaded.");
+
+            completeRunnable.run();
+            onDataLoadFailed(throwable);
+            return;
+        }
+
+        if (rowsLoaded == 0) {
+            log("No data found - finished retrieving data.");
+        } else {
+            log("Finished retrieving data, loaded " + dataMap.size() + " object(s).");
+        }
+
+        completeRunnable.run();
+        onDataLoaded();
+    }
+
     public void loadDataByField(@NonNull String fieldName, @NonNull Object object, @NonNull Runnable completeRunnable) {
         statements.getColumnData(fieldName).ifPresentOrElse(columnData -> {
             FieldProcessor processor = bormAPI.getFieldProcessor(TypeToken.asTypeToken(columnData.getField().getGenericType()));
 
-            String value = (String) processor.processTo(object);
-            String query = String.format("SELECT * FROM %s WHERE %s='%s';", table, columnData.getName(), value);
+            String value = String.valueOf(processor.processTo(object));
+            String query = String.format("SELECT * FROM %s WHERE %s = ?;", table, columnData.getName());
 
             bormAPI.executeQuery(query, result -> {
                 try {
-                    if (result == null || !result.next()) {
-                        return;
-                    }
+                    int[] columnIndexes = getRowDecoder().getColumnIndexes(result.getMetaData());
 
-                    do {
-                        loadObject(result, o -> o.ifPresent(data -> {
+                    while (result.next()) {
+                        loadObject(result, columnIndexes, o -> o.ifPresent(data -> {
                             dataMap.put(statements.getId(data), data);
+                            index(data);
                             data.setOwningTable(this);
                             onDataAdded(data);
                         }));
-                    } while (result.next());
+                    }
                 } catch (SQLException exception) {
                     bormAPI.getLogger().severe("Failed to load data from table " + table + ": " + exception.getMessage());
                     throw new RuntimeException(exception);
                 } finally {
+                    dispatchForeignLoads();
                     completeRunnable.run();
                 }
-            });
+            }, value);
         }, () -> {
             bormAPI.getLogger().warning("Unable to find column for field: " + fieldName + " in table: " + table);
             completeRunnable.run();
@@ -147,6 +385,20 @@ public class BormTable<O extends BormObject> {
     public void onDataLoaded() {
     }
 
+    /**
+     * Called instead of {@link #onDataLoaded()} when a query of {@link #loadData(Runnable)} failed, the
+     * cache then only holds the rows read before the failure.
+     */
+    public void onDataLoadFailed(@NonNull Throwable throwable) {
+    }
+
+    /**
+     * Called periodically while {@link #loadData(Runnable)} reads rows, every {@link #loadProgressInterval} rows.
+     * Partitioned loads may call it from several threads at once.
+     */
+    public void onDataLoadProgress(int rowsLoaded, double rowsPerSecond) {
+    }
+
     public void onDataDeleted(@NonNull O object) {
     }
 
@@ -156,6 +408,13 @@ public class BormTable<O extends BormObject> {
     public void onDataUpdated(@NonNull O object) {
     }
 
+    /**
+     * Called after the cache policy evicted an object. Changes it had that weren't saved are written in
+     * the background, and loads of its id return this object again until they have been written.
+     */
+    public void onDataEvicted(@NonNull O object) {
+    }
+
     public void add(@NonNull O object) {
         add(object, true);
     }
@@ -165,7 +424,10 @@ public class BormTable<O extends BormObject> {
             return;
         }
 
+        invalidateMissing(statements.getId(object));
+
         dataMap.put(statements.getId(object), object);
+        index(object);
         object.setOwningTable(this);
         onDataAdded(object);
 
@@ -181,330 +443,1281 @@ public class BormTable<O extends BormObject> {
     }
 
     public void save(@NonNull O object, @Nullable Consumer<Optional<ResultSet>> callback) {
-        bormAPI.executeStatement(statements.getDataSaveStatement(object), result -> {
+        if (statements.getId(object) != null) {
+            invalidateMissing(statements.getId(object));
+        }
+
+        if (!indexes.isEmpty() && dataMap.get(statements.getId(object)) == object) {
+            index(object);
+        }
+
+        if (writeBehindTask != null) {
+            queueSave(object, callback);
+            return;
+        }
+
+        write(object, callback);
+    }
+
+    private CompletableFuture<Void> write(@NonNull O object, @Nullable Consumer<Optional<ResultSet>> callback) {
+        Object[] values = statements.getDataSaveValues(object);
+        SaveOperation operation = getSaveOperation(object, values);
+
+        if (operation == null) {
+            if (callback != null) {
+                callback.accept(Optional.empty());
+            }
+
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return bormAPI.executeStatement(operation.query(), result -> {
             if (result == null) {
+                markPersisted(object, values);
+                object.getDirtyFields().removeAll(operation.dirtyFields());
+                invalidateMissing(statements.getId(object));
+
                 if (callback != null) {
                     callback.accept(Optional.empty());
                 }
 
-                if (bormAPI.getRedisHook() == null) {
-                    return;
-                }
-
-                bormAPI.getRedisHook().sendChange(BormRedisUpdateType.SAVE, table, statements.getId(object).toString());
+                sendSave(object, values, operation.columns());
                 return;
             }
 
+            boolean hasGeneratedKey;
+
+            try {
+                // The generated keys are a copied row set, positioned before their first row
+                hasGeneratedKey = result.next();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+
             statements.getColumnData().forEach(columnData -> {
-                if (!columnData.getColumn().autoIncrement()) {
+                if (!hasGeneratedKey || !columnData.getColumn().autoIncrement() || operation.query() != statements.getSaveStatement()) {
                     return;
                 }
 
                 try {
-                    Field field = columnData.getField();
-                    boolean originalState = field.canAccess(object);
-                    field.setAccessible(true);
-                    field.setInt(object, result.getInt(1));
-                    field.setAccessible(originalState);
-                } catch (SQLException | IllegalAccessException e) {
+                    Class<?> fieldType = columnData.getField().getType();
+
+                    if (fieldType == long.class || fieldType == Long.class) {
+                        columnData.setValue(object, result.getLong(1));
+                    } else {
+                        columnData.setValue(object, result.getInt(1));
+                    }
+                } catch (SQLException e) {
                     throw new RuntimeException(e);
                 }
             });
 
+            ColumnData primaryKeyData = statements.getPrimaryKeyData();
+
+            if (primaryKeyData != null && primaryKeyData.getColumn().autoIncrement() && operation.query() == statements.getSaveStatement()) {
+                values[0] = statements.getColumnValue(object, primaryKeyData);
+            }
+
+            markPersisted(object, values);
+            object.getDirtyFields().removeAll(operation.dirtyFields());
+            invalidateMissing(statements.getId(object));
             onDataUpdated(object);
 
             if (callback != null) {
                 callback.accept(Optional.of(result));
             }
 
-            if (bormAPI.getRedisHook() == null) {
-                return;
-            }
+            sendSave(object, values, operation.columns());
+        }, operation.arguments());
+    }
+
+    /**
+     * Sends the save through Redis with the columns that were written, so other servers can apply them without a query.
+     *
+     * @param columns the indexes of the written save columns, or null if the save statement was used
+     */
+    private void sendSave(@NonNull O object, @NonNull Object[] values, @Nullable int[] columns) {
+        BormRedisHook redisHook = bormAPI.getRedisHook();
+
+        if (redisHook == null) {
+            return;
+        }
+
+        int[] sentColumns = columns == null ? statements.getSaveStatementColumns() : columns;
 
-            bormAPI.getRedisHook().sendChange(BormRedisUpdateType.SAVE, table, statements.getId(object).toString());
+        redisHook.sendChange(BormRedisUpdateType.SAVE, table, statements.getId(object).toString(),
+                getColumnNames(sentColumns), new String[][]{getRow(values, sentColumns)});
+    }
+
+    /**
+     * Sends the rows written by a batch through Redis. Rows are grouped by the columns that were written,
+     * and each group is sent in chunks of {@link #REDIS_CHANGE_CHUNK_SIZE} rows.
+     */
+    private void sendSaveAll(@NonNull List<SavedObject<O>> savedObjects) {
+        BormRedisHook redisHook = bormAPI.getRedisHook();
+
+        if (redisHook == null || savedObjects.isEmpty()) {
+            return;
+        }
+
+        Map<List<Integer>, List<String[]>> rowsByColumns = new LinkedHashMap<>();
+
+        for (SavedObject<O> savedObject : savedObjects) {
+            int[] columns = savedObject.columns() == null ? statements.getSaveStatementColumns() : savedObject.columns();
+
+            rowsByColumns.computeIfAbsent(Arrays.stream(columns).boxed().toList(), key -> new ArrayList<>())
+                    .add(getRow(savedObject.values(), columns));
+        }
+
+        rowsByColumns.forEach((columns, rows) -> {
+            String[] fields = getColumnNames(columns.stream().mapToInt(Integer::intValue).toArray());
+
+            for (int start = 0; start < rows.size(); start += REDIS_CHANGE_CHUNK_SIZE) {
+                redisHook.sendChange(BormRedisUpdateType.SAVE_ALL, table, "", fields,
+                        rows.subList(start, Math.min(rows.size(), start + REDIS_CHANGE_CHUNK_SIZE)).toArray(String[][]::new));
+            }
         });
     }
 
+    private String[] getColumnNames(int[] columns) {
+        List<ColumnData> saveColumns = statements.getSaveColumns();
+        return Arrays.stream(columns).mapToObj(column -> saveColumns.get(column).getName()).toArray(String[]::new);
+    }
+
+    private String[] getRow(@NonNull Object[] values, int[] columns) {
+        return Arrays.stream(columns).mapToObj(column -> values[column] == null ? null : values[column].toString()).toArray(String[]::new);
+    }
+
     public void saveAll(@Nullable Consumer<Void> callback) {
         if (dataMap.isEmpty() && callback != null) {
             callback.accept(null);
             return;
         }
 
-        List<String> statements = new ArrayList<>();
+        List<O> objects = new ArrayList<>(dataMap.values());
+        objects.forEach(this::index);
 
-        getDataMap().values().forEach(o -> statements.add(getStatements().getDataSaveStatement(o)));
-
-        bormAPI.executeBatch(statements, result -> {
-            if (bormAPI.getRedisHook() != null) {
-                bormAPI.getRedisHook().sendChange(BormRedisUpdateType.SAVE_ALL, table, "");
-            }
+        saveBatch(objects, savedObjects -> {
+            sendSaveAll(savedObjects);
 
             if (callback != null) {
                 callback.accept(null);
             }
-        });
+        }, throwable -> log("Unable to save all objects, the batch failed."));
     }
 
     /**
-     * Deletes all the entries in the in-memory cache and the corresponding records
-     * from the associated database table. This method clears the internal data map
-     * and executes a SQL statement to remove all rows from the table.
+     * Returns the cached objects by id. This was a {@link ConcurrentHashMap} before cache policies, it's
+     * now a {@link ConcurrentMap} as bounded caches are backed by Caffeine.
      */
-    public void deleteAll() {
-        dataMap.clear();
-        bormAPI.executeStatement(statements.getTableClearStatement());
+    public ConcurrentMap<Object, O> getDataMap() {
+        return dataMap;
     }
 
-    public void delete(@NonNull O object) {
-        if (!dataMap.containsKey(statements.getId(object))) {
-            return;
-        }
+    /**
+     * Replaces the policy bounding the cache, cached objects are moved to the new cache.
+     * Should be set before the table is loaded, usually in the table's constructor.
+     */
+    public void setCachePolicy(@NonNull BormCachePolicy<O> cachePolicy) {
+        ConcurrentMap<Object, O> newDataMap = cachePolicy.isUnbounded() ? new ConcurrentHashMap<>() : cachePolicy.newBuilder()
+                .evictionListener((Object id, O object, RemovalCause cause) -> {
+                    if (object != null && cause.wasEvicted()) {
+                        unindex(id);
+                        evictingData.put(id, object);
+
+                        try {
+                            bormAPI.getScheduler().execute(() -> writeEvicted(object));
+                        } catch (RejectedExecutionException exception) {
+                            writeEvicted(object);
+                        }
+                    }
+                })
+                .removalListener((Object id, O object, RemovalCause cause) -> {
+                    if (object != null && cause.wasEvicted()) {
+                        onDataEvicted(object);
+                    }
+                })
+                .build().asMap();
 
-        dataMap.remove(statements.getId(object));
+        newDataMap.putAll(dataMap);
 
-        for (ColumnData columnData : statements.getColumnData()) {
-            if (columnData.getForeignTable() == null || !columnData.getColumn().cascadeDelete()) {
-                continue;
-            }
+        this.cachePolicy = cachePolicy;
+        this.dataMap = newDataMap;
+    }
 
-            try {
-                Field field = columnData.getField();
-                field.setAccessible(true);
+    /**
+     * Enables negative caching. Ids that {@link #getDataFromDB(Object, boolean, Consumer)} didn't find are
+     * remembered for the duration, and further lookups of them that check the cache are answered without
+     * a query. Adding or saving an object, or a Redis save message, forgets its id.
+     *
+     * @param maximumSize       the amount of missing ids to remember
+     * @param expireAfterWrite  how long a missing id is remembered
+     */
+    public void enableNegativeCache(long maximumSize, @NonNull Duration expireAfterWrite) {
+        this.missingIds = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
 
-                BormTable foreignTable = columnData.getForeignTable();
-                Object foreignObject = field.get(object);
+    public void disableNegativeCache() {
+        this.missingIds = null;
+    }
 
-                if (foreignObject instanceof List<?> list) {
-                    if (list.isEmpty()) {
-                        continue;
-                    }
+    /**
+     * Forgets that the id was missing from the database, for when it was inserted elsewhere.
+     */
+    public void invalidateMissing(@NonNull Object id) {
+        Cache<Object, Boolean> missingIds = this.missingIds;
 
-                    List<BormObject> dataList = (List<BormObject>) foreignObject;
-                    dataList.forEach(foreignTable::delete);
-                    continue;
-                }
+        if (missingIds != null) {
+            missingInvalidations.incrementAndGet();
+            missingIds.invalidate(normalizeId(id));
+        }
+    }
 
-                if (foreignObject instanceof HashMap<?, ?> hashMap) {
-                    if (hashMap.isEmpty()) {
-                        continue;
-                    }
+    /**
+     * Forgets every id remembered as missing.
+     */
+    public void invalidateMissing() {
+        Cache<Object, Boolean> missingIds = this.missingIds;
 
-                    HashMap<?, BormObject> dataMap = (HashMap<?, BormObject>) foreignObject;
-                    dataMap.values().forEach(foreignTable::delete);
-                    continue;
-                }
+        if (missingIds != null) {
+            missingInvalidations.incrementAndGet();
+            missingIds.invalidateAll();
+        }
+    }
 
-                if (!(foreignObject instanceof BormObject)) {
-                    continue;
-                }
+    /**
+     * Writes an object that's being evicted if it has changes that weren't saved yet. Runs on the scheduler
+     * rather than in the eviction, so a full write queue can't block the thread that caused it. The object
+     * stays in {@link #evictingData} until the write completes.
+     */
+    private void writeEvicted(@NonNull O object) {
+        Object id = statements.getId(object);
+        PendingSave<O> pendingSave = pendingSaves.remove(id);
 
-                foreignTable.delete((BormObject) foreignObject);
-            } catch (Exception e) {
-                log("Unable to delete foreign data.");
-                e.printStackTrace();
-            }
+        if (pendingSave == null && !isDirty(object)) {
+            evictingData.remove(id, object);
+            return;
         }
 
-        bormAPI.executeStatement(statements.getDataDeleteStatement(object), rs -> {
-            onDataDeleted(object);
+        write(object, pendingSave == null ? null : result -> pendingSave.callbacks().forEach(callback -> callback.accept(Optional.empty())))
+                .whenComplete((unused, throwable) -> evictingData.remove(id, object));
+    }
 
-            if (bormAPI.getRedisHook() == null) {
-                return;
-            }
+    /**
+     * Determines whether the object has changes that weren't saved, as far as the change tracking allows.
+     */
+    private boolean isDirty(@NonNull O object) {
+        if (!object.getDirtyFields().isEmpty()) {
+            return true;
+        }
 
-            bormAPI.getRedisHook().sendChange(BormRedisUpdateType.DELETE, table, statements.getId(object).toString());
-        });
-    }
+        if (changeTracking == ChangeTracking.NONE) {
+            return false;
+        }
 
-    protected void loadPendingData(@NonNull Pair<Field, Object> key, @NonNull Object object, Consumer<Object> consumer) {
+        if (!object.isPersisted()) {
+            return true;
+        }
+
+        return changeTracking == ChangeTracking.SNAPSHOT && !Arrays.equals(object.getPersistedValues(), statements.getDataSaveValues(object));
+    }
+
+    /**
+     * Enables write-behind saving. Calls to {@link #save(BormObject)} only mark the object
+     * as pending, and pending objects are written in a single batch at most once per
+     * interval, or as soon as maxBatchSize objects are waiting. Callbacks passed to save
+     * are completed with an empty result once the batch has been committed.
+     *
+     * @param interval     how often pending saves are flushed
+     * @param maxBatchSize the amount of pending objects that triggers an early flush
+     */
+    public synchronized void enableWriteBehind(@NonNull Duration interval, int maxBatchSize) {
+        if (statements.getColumnData().stream().anyMatch(columnData -> columnData.getColumn().autoIncrement())) {
+            log("Unable to enable write-behind, tables with auto increment columns need the generated keys of each save.");
+            return;
+        }
+
+        disableWriteBehind();
+
+        this.writeBehindBatchSize = Math.max(1, maxBatchSize);
+        this.writeBehindTask = bormAPI.getScheduler().scheduleWithFixedDelay(this::flush,
+                interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void disableWriteBehind() {
+        ScheduledFuture<?> writeBehindTask = this.writeBehindTask;
+
+        if (writeBehindTask == null) {
+            return;
+        }
+
+        writeBehindTask.cancel(false);
+        this.writeBehindTask = null;
+
+        flush();
+    }
+
+    /**
+     * Writes every object queued by write-behind saving in a single batch. If the batch fails its
+     * saves are queued again, and dropped once they failed {@link #MAX_WRITE_BEHIND_ATTEMPTS} times.
+     * The callbacks of dropped saves are never called.
+     */
+    public void flush() {
+        flushQueued.set(false);
+
+        if (pendingSaves.isEmpty()) {
+            return;
+        }
+
+        List<PendingSave<O>> saves = new ArrayList<>();
+
+        for (Object id : pendingSaves.keySet()) {
+            PendingSave<O> pendingSave = pendingSaves.remove(id);
+
+            if (pendingSave == null) {
+                continue;
+            }
+
+            saves.add(pendingSave);
+        }
+
+        if (saves.isEmpty()) {
+            return;
+        }
+
+        saveBatch(saves.stream().map(PendingSave::object).toList(), savedObjects -> {
+            saves.forEach(pendingSave -> pendingSave.callbacks().forEach(callback -> callback.accept(Optional.empty())));
+
+            for (SavedObject<O> savedObject : savedObjects) {
+                onDataUpdated(savedObject.object());
+                sendSave(savedObject.object(), savedObject.values(), savedObject.columns());
+            }
+        }, throwable -> requeueSaves(saves));
+    }
+
+    /**
+     * Queues the saves of a failed batch again, keeping any newer save of the same object.
+     */
+    private void requeueSaves(@NonNull List<PendingSave<O>> saves) {
+        List<PendingSave<O>> droppedSaves = new ArrayList<>();
+
+        for (PendingSave<O> pendingSave : saves) {
+            if (pendingSave.attempts() + 1 >= MAX_WRITE_BEHIND_ATTEMPTS) {
+                droppedSaves.add(pendingSave);
+                continue;
+            }
+
+            pendingSaves.merge(statements.getId(pendingSave.object()),
+                    new PendingSave<>(pendingSave.object(), pendingSave.callbacks(), pendingSave.attempts() + 1),
+                    (newerSave, failedSave) -> {
+                        newerSave.callbacks().addAll(0, failedSave.callbacks());
+                        return newerSave;
+                    });
+        }
+
+        log("Unable to write " + saves.size() + " queued saves, " + (saves.size() - droppedSaves.size())
+                + " will be retried with the next flush and " + droppedSaves.size() + " were dropped.");
+    }
+
+    private void saveBatch(@NonNull List<O> objects, @NonNull Consumer<List<SavedObject<O>>> completeConsumer,
+                           @NonNull Consumer<Throwable> failureConsumer) {
+        Map<String, List<Object[]>> batches = new LinkedHashMap<>();
+        List<SavedObject<O>> savedObjects = new ArrayList<>();
+        List<Set<String>> savedDirtyFields = new ArrayList<>();
+
+        objects.forEach(object -> {
+            Object[] values = statements.getDataSaveValues(object);
+            SaveOperation operation = getSaveOperation(object, values);
+
+            if (operation == null) {
+                return;
+            }
+
+            batches.computeIfAbsent(operation.query(), query -> new ArrayList<>()).add(operation.arguments());
+            savedObjects.add(new SavedObject<>(object, values, operation.columns()));
+            savedDirtyFields.add(operation.dirtyFields());
+        });
+
+        if (batches.isEmpty()) {
+            completeConsumer.accept(savedObjects);
+            return;
+        }
+
+        List<String> queries = new ArrayList<>();
+        List<Object[]> arguments = new ArrayList<>();
+
+        batches.forEach((query, queryArguments) -> {
+            queries.addAll(Collections.nCopies(queryArguments.size(), query));
+            arguments.addAll(queryArguments);
+        });
+
+        AtomicBoolean committed = new AtomicBoolean();
+
+        bormAPI.executeBatch(queries, arguments, result -> {
+            committed.set(true);
+
+            for (int i = 0; i < savedObjects.size(); i++) {
+                O object = savedObjects.get(i).object();
+
+                markPersisted(object, savedObjects.get(i).values());
+                object.getDirtyFields().removeAll(savedDirtyFields.get(i));
+                invalidateMissing(statements.getId(object));
+            }
+
+            completeConsumer.accept(savedObjects);
+        }).whenComplete((unused, throwable) -> {
+            // Only a batch that wasn't committed failed, errors thrown by the consumer are logged by the executor
+            if (throwable != null && !committed.get()) {
+                failureConsumer.accept(throwable);
+            }
+        });
+    }
+
+    /**
+     * Determines what has to be written to save the object.
+     *
+     * @param object the object being saved
+     * @param values the object's current save values
+     * @return the statement and arguments to execute, or null if nothing changed
+     */
+    private @Nullable SaveOperation getSaveOperation(@NonNull O object, @NonNull Object[] values) {
+        Set<String> dirtyFields = new HashSet<>(object.getDirtyFields());
+        SaveOperation saveOperation = new SaveOperation(statements.getSaveStatement(), values, null, dirtyFields);
+
+        if (changeTracking == ChangeTracking.NONE || !object.isPersisted() || statements.getPrimaryKeyData() == null) {
+            return saveOperation;
+        }
+
+        Object[] persistedValues = changeTracking == ChangeTracking.SNAPSHOT ? object.getPersistedValues() : null;
+
+        if (changeTracking == ChangeTracking.SNAPSHOT && (persistedValues == null || !Objects.equals(values[0], persistedValues[0]))) {
+            return saveOperation;
+        }
+
+        if (changeTracking == ChangeTracking.EXPLICIT && dirtyFields.isEmpty()) {
+            return saveOperation;
+        }
+
+        List<ColumnData> columns = statements.getSaveColumns();
+        List<String> changedColumnNames = new ArrayList<>();
+        List<Integer> changedColumns = new ArrayList<>(List.of(0));
+        List<Object> arguments = new ArrayList<>();
+
+        for (int i = 1; i < columns.size(); i++) {
+            ColumnData columnData = columns.get(i);
+
+            if (!columnData.getColumn().updateOnSave()) {
+                continue;
+            }
+
+            boolean dirty = dirtyFields.stream().anyMatch(field -> statements.matchesColumn(columnData, field));
+
+            if (!dirty && (persistedValues == null || Objects.equals(values[i], persistedValues[i]))) {
+                continue;
+            }
+
+            changedColumnNames.add(columnData.getName());
+            changedColumns.add(i);
+            arguments.add(values[i]);
+        }
+
+        if (changedColumnNames.isEmpty()) {
+            object.getDirtyFields().removeAll(dirtyFields);
+            return null;
+        }
+
+        arguments.add(values[0]);
+        return new SaveOperation(statements.getUpdateStatement(changedColumnNames.toArray(new String[]{})), arguments.toArray(),
+                changedColumns.stream().mapToInt(Integer::intValue).toArray(), dirtyFields);
+    }
+
+    private void markPersisted(@NonNull O object, @Nullable Object[] values) {
+        if (changeTracking == ChangeTracking.NONE) {
+            return;
+        }
+
+        object.setPersisted(true);
+
+        if (changeTracking != ChangeTracking.SNAPSHOT) {
+            return;
+        }
+
+        object.setPersistedValues(values == null ? statements.getDataSaveValues(object) : values);
+    }
+
+    private void queueSave(@NonNull O object, @Nullable Consumer<Optional<ResultSet>> callback) {
+        pendingSaves.compute(statements.getId(object), (id, pendingSave) -> {
+            if (pendingSave == null || pendingSave.object() != object) {
+                pendingSave = new PendingSave<>(object, pendingSave == null ? new ArrayList<>() : pendingSave.callbacks(), 0);
+            }
+
+            if (callback != null) {
+                pendingSave.callbacks().add(callback);
+            }
+
+            return pendingSave;
+        });
+
+        if (pendingSaves.size() < writeBehindBatchSize || !flushQueued.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            bormAPI.getScheduler().execute(this::flush);
+        } catch (RejectedExecutionException exception) {
+            // The scheduler is shut down once the API is closed
+            flush();
+        }
+    }
+
+    /**
+     * Deletes all the entries in the in-memory cache and the corresponding records
+     * from the associated database table. This method clears the internal data map
+     * and executes a SQL statement to remove all rows from the table.
+     */
+    public void deleteAll() {
+        dataMap.clear();
+        indexes.values().forEach(ColumnIndex::clear);
+        pendingSaves.clear();
+        evictingData.clear();
+        bormAPI.executeStatement(statements.getTableClearStatement());
+    }
+
+    public void delete(@NonNull O object) {
+        if (!dataMap.containsKey(statements.getId(object))) {
+            return;
+        }
+
+        dataMap.remove(statements.getId(object));
+        unindex(statements.getId(object));
+        pendingSaves.remove(statements.getId(object));
+
+        for (ColumnData columnData : statements.getColumnData()) {
+            if (columnData.getForeignTable() == null || !columnData.getColumn().cascadeDelete()) {
+                continue;
+            }
+
+            try {
+                BormTable foreignTable = columnData.getForeignTable();
+                Object foreignObject = columnData.getValue(object);
+
+                if (foreignObject instanceof BormRef<?> reference) {
+                    reference.load(data -> data.ifPresent(foreignTable::delete));
+                    continue;
+                }
+
+                if (BormRef.isReferenceList(columnData.getField())) {
+                    BormRef.loadAll((List) foreignObject, dataList -> dataList.forEach(foreignTable::delete));
+                    continue;
+                }
+
+                if (foreignObject instanceof List<?> list) {
+                    if (list.isEmpty()) {
+                        continue;
+                    }
+
+                    List<BormObject> dataList = (List<BormObject>) foreignObject;
+                    dataList.forEach(foreignTable::delete);
+                    continue;
+                }
+
+                if (foreignObject instanceof HashMap<?, ?> hashMap) {
+                    if (hashMap.isEmpty()) {
+                        continue;
+                    }
+
+                    HashMap<?, BormObject> dataMap = (HashMap<?, BormObject>) foreignObject;
+                    dataMap.values().forEach(foreignTable::delete);
+                    continue;
+                }
+
+                if (!(foreignObject instanceof BormObject)) {
+                    continue;
+                }
+
+                foreignTable.delete((BormObject) foreignObject);
+            } catch (Exception e) {
+                log("Unable to delete foreign data.");
+                e.printStackTrace();
+            }
+        }
+
+        bormAPI.executeStatement(statements.getDeleteStatement(), rs -> {
+            onDataDeleted(object);
+
+            if (bormAPI.getRedisHook() == null) {
+                return;
+            }
+
+            bormAPI.getRedisHook().sendChange(BormRedisUpdateType.DELETE, table, statements.getId(object).toString());
+        }, statements.getDataDeleteValues(object));
+    }
+
+    protected void loadPendingData(@NonNull Pair<Field, Object> key, @NonNull Object object, Consumer<Object> consumer) {
         Field field = key.getKey();
         Object value = key.getValue();
 
-        Class<?> primaryKeyType = statements.getPrimaryKeyData().getField().getType();
-        Class<?> fieldType = field.getType();
+        Class<?> fieldType = field.getType();
+
+        if (value == null || ((value instanceof String) && ((String) value).trim().isEmpty())) {
+            consumer.accept(
+                    fieldType.isAssignableFrom(List.class) ? new ArrayList<>() :
+                            fieldType.isAssignableFrom(Map.class) ? new HashMap<>() : null);
+            return;
+        }
+
+        if (BormObject.class.isAssignableFrom(fieldType)) {
+            queueForeignLoad(value, o -> consumer.accept(o.orElse(null)));
+            return;
+        }
+
+        if (fieldType == BormRef.class) {
+            consumer.accept(new BormRef<>(this, normalizeId(value)));
+            return;
+        }
+
+        if (BormRef.isReferenceList(field)) {
+            if (!(value instanceof String)) {
+                log("Unable to process field: " + field.getName() + " for class " + object.getClass().getSimpleName() + ".");
+                consumer.accept(new ArrayList<>());
+                return;
+            }
+
+            List<BormRef<O>> references = new ArrayList<>();
+
+            for (Object id : ListUtil.stringToList((String) value)) {
+                references.add(new BormRef<>(this, normalizeId(id)));
+            }
+
+            consumer.accept(references);
+            return;
+        }
+
+        if (fieldType.isAssignableFrom(List.class)) {
+            if (!(value instanceof String)) {
+                log("Unable to process field: " + field.getName() + " for class " + object.getClass().getSimpleName() + ".");
+                consumer.accept(new ArrayList<>());
+                return;
+            }
+
+            List<Object> list = (List<Object>) ListUtil.stringToList((String) value);
+
+            if (list.isEmpty()) {
+                consumer.accept(new ArrayList<>());
+                return;
+            }
+
+            Object[] loadedData = new Object[list.size()];
+            AtomicInteger remaining = new AtomicInteger(list.size());
+
+            Runnable complete = () -> {
+                List<O> newList = new ArrayList<>();
+
+                for (Object data : loadedData) {
+                    if (data != null) {
+                        newList.add((O) data);
+                    }
+                }
+
+                consumer.accept(newList);
+            };
+
+            for (int i = 0; i < list.size(); i++) {
+                Object id = list.get(i);
+                int index = i;
+
+                if (!(id instanceof String)) {
+                    log("Unable to process item in list: " + id + " for class " + object.getClass().getSimpleName() + ".");
+
+                    if (remaining.decrementAndGet() == 0) {
+                        complete.run();
+                    }
+                    continue;
+                }
+
+                queueForeignLoad(id, o -> {
+                    loadedData[index] = o.orElse(null);
+
+                    if (remaining.decrementAndGet() == 0) {
+                        complete.run();
+                    }
+                });
+            }
+            return;
+        }
+
+        if (fieldType.isAssignableFrom(Map.class) || !(value instanceof String)) {
+            log("Unable to process field: " + field.getName() + " for class " + object.getClass().getSimpleName() + ".");
+            consumer.accept(new HashMap<>());
+            return;
+        }
+
+        Map<Object, Object> map = HashMapUtil.mapFromString(null, (String) value);
+        HashMap<Object, O> newMap = new HashMap<>();
+
+        if (map.isEmpty()) {
+            consumer.accept(newMap);
+            return;
+        }
+
+        AtomicInteger remaining = new AtomicInteger(map.size());
+
+        map.forEach((key1, id) -> {
+            if (!(id instanceof String)) {
+                log("Unable to process item in map: " + id + " for class " + object.getClass().getSimpleName() + ".");
+
+                if (remaining.decrementAndGet() == 0) {
+                    consumer.accept(newMap);
+                }
+                return;
+            }
+
+            queueForeignLoad(id, o -> {
+                synchronized (newMap) {
+                    o.ifPresent(data -> newMap.put(key1, data));
+                }
+
+                if (remaining.decrementAndGet() != 0) {
+                    return;
+                }
+
+                consumer.accept(newMap);
+            });
+        });
+    }
+
+    /**
+     * Queues a load of the object with the given id. Queued ids are loaded together with
+     * chunked IN queries once the rows referencing them have been read, see {@link #dispatchPendingLoads()}.
+     */
+    void queueForeignLoad(@NonNull Object id, @NonNull Consumer<Optional<O>> consumer) {
+        if (statements.getPrimaryKeyData() == null) {
+            consumer.accept(Optional.empty());
+            return;
+        }
+
+        id = normalizeId(id);
+        Optional<O> cachedData = getDataById(id);
+
+        if (cachedData.isPresent()) {
+            consumer.accept(cachedData);
+            return;
+        }
+
+        O evictedData = evictingData.get(id);
+
+        if (evictedData != null) {
+            consumer.accept(Optional.of(cacheLoadedData(evictedData)));
+            return;
+        }
+
+        boolean chunkFull;
+
+        synchronized (pendingLoads) {
+            pendingLoads.computeIfAbsent(String.valueOf(statements.getIdValue(id)), key -> new ArrayList<>()).add(consumer);
+            chunkFull = pendingLoads.size() >= FOREIGN_LOAD_CHUNK_SIZE;
+        }
+
+        if (chunkFull) {
+            dispatchPendingLoads();
+        }
+    }
+
+    void dispatchPendingLoads() {
+        Map<String, List<Consumer<Optional<O>>>> loads;
+
+        synchronized (pendingLoads) {
+            if (pendingLoads.isEmpty()) {
+                return;
+            }
+
+            loads = new LinkedHashMap<>(pendingLoads);
+            pendingLoads.clear();
+        }
+
+        List<String> ids = new ArrayList<>(loads.keySet());
+
+        for (int start = 0; start < ids.size(); start += FOREIGN_LOAD_CHUNK_SIZE) {
+            List<String> chunkIds = ids.subList(start, Math.min(ids.size(), start + FOREIGN_LOAD_CHUNK_SIZE));
+            Map<String, List<Consumer<Optional<O>>>> chunk = new HashMap<>();
+            chunkIds.forEach(id -> chunk.put(id, loads.get(id)));
+
+            String query = String.format("SELECT * FROM %s WHERE %s IN (%s);", table,
+                    statements.getPrimaryKeyData().getName(), String.join(", ", Collections.nCopies(chunkIds.size(), "?")));
+
+            bormAPI.executeQuery(query, result -> {
+                try {
+                    int[] columnIndexes = getRowDecoder().getColumnIndexes(result.getMetaData());
+                    int primaryKeyIndex = columnIndexes[getRowDecoder().getPrimaryKeyColumn()];
+
+                    while (result.next()) {
+                        List<Consumer<Optional<O>>> consumers = chunk.remove(String.valueOf(result.getObject(primaryKeyIndex)));
+
+                        if (consumers == null) {
+                            continue;
+                        }
+
+                        loadObject(result, columnIndexes, o -> {
+                            Optional<O> data = o.map(this::cacheLoadedData);
+                            consumers.forEach(consumer -> consumer.accept(data));
+                        });
+                    }
+                } catch (SQLException exception) {
+                    throw new RuntimeException(exception);
+                } finally {
+                    dispatchForeignLoads();
+                }
+
+                chunk.values().forEach(consumers -> consumers.forEach(consumer -> consumer.accept(Optional.empty())));
+                chunk.clear();
+            }, chunkIds.toArray()).whenComplete((unused, throwable) -> {
+                if (throwable == null) {
+                    return;
+                }
+
+                chunk.values().forEach(consumers -> consumers.forEach(consumer -> consumer.accept(Optional.empty())));
+            });
+        }
+    }
+
+    /**
+     * Dispatches the loads queued on the foreign tables of this table while reading rows.
+     */
+    void dispatchForeignLoads() {
+        dispatchForeignLoads(true);
+    }
+
+    /**
+     * @param includeJoined whether to also dispatch the loads queued by objects decoded from joined rows
+     */
+    private void dispatchForeignLoads(boolean includeJoined) {
+        for (int column : getRowDecoder().getForeignColumns()) {
+            BormTable<?> foreignTable = bormAPI.getTable(statements.getColumnData().get(column).getColumn().foreignTable());
+
+            if (foreignTable == null) {
+                continue;
+            }
+
+            foreignTable.dispatchPendingLoads();
+
+            if (includeJoined && joinPlan != null && joinPlan.isJoined(foreignTable)) {
+                foreignTable.dispatchForeignLoads(false);
+            }
+        }
+    }
+
+    O cacheLoadedData(@NonNull O data) {
+        // A row read while an evicted object's changes were being written is older than that object
+        O evictedData = evictingData.get(statements.getId(data));
+
+        if (evictedData != null) {
+            data = evictedData;
+        }
+
+        O cachedData = dataMap.putIfAbsent(statements.getId(data), data);
+
+        if (cachedData != null) {
+            return cachedData;
+        }
+
+        invalidateMissing(statements.getId(data));
+
+        index(data);
+        data.setOwningTable(this);
+        onDataAdded(data);
+        return data;
+    }
+
+    /**
+     * Caches an object read from the database. If an object with the same id is already cached, the read
+     * values are copied onto it instead, so every reference to it sees the row as it's now stored.
+     */
+    private O refreshLoadedData(@NonNull O data) {
+        O cachedData = dataMap.get(statements.getId(data));
 
-        if (value == null || ((value instanceof String) && ((String) value).trim().isEmpty())) {
-            consumer.accept(
-                    fieldType.isAssignableFrom(List.class) ? new ArrayList<>() :
-                            fieldType.isAssignableFrom(Map.class) ? new HashMap<>() : null);
-            return;
+        if (cachedData == null || cachedData == data) {
+            return cacheLoadedData(data);
         }
 
-        if (fieldType.isInstance(BormObject.class)) {
-            if (value instanceof String) {
-                value = StringProcessor.findAndProcess(primaryKeyType, (String) value);
-            }
+        statements.getColumnData().forEach(columnData -> columnData.setValue(cachedData, columnData.getValue(data)));
+        cachedData.getDirtyFields().clear();
+        markPersisted(cachedData, null);
+
+        index(cachedData);
+        onDataUpdated(cachedData);
+        return cachedData;
+    }
+
+    public void loadObject(ResultSet result, Consumer<Optional<O>> consumer) throws SQLException {
+        loadObject(result, getRowDecoder().getColumnIndexes(result.getMetaData()), consumer);
+    }
+
+    private void loadObject(@NonNull ResultSet result, int[] columnIndexes, @NonNull Consumer<Optional<O>> consumer) throws SQLException {
+        loadObject(getRowDecoder().read(result, columnIndexes), null, consumer);
+    }
+
+    /**
+     * Builds an object from its raw column values, in column order. The consumer is called
+     * exactly once, after any foreign references have been loaded.
+     */
+    void loadObject(@NonNull Object[] rawValues, @NonNull Consumer<Optional<O>> consumer) {
+        loadObject(rawValues, null, consumer);
+    }
+
+    void loadObject(@NonNull Object[] rawValues, @Nullable Object[][] joinedValues, @NonNull Consumer<Optional<O>> consumer) {
+        RowDecoder<O> decoder = getRowDecoder();
+        Object[] values = new Object[rawValues.length];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = decoder.decode(i, rawValues[i]);
+        }
 
-            getDataFromDB(value, true, true, o -> o.ifPresent(consumer));
+        int[] foreignColumns = decoder.getForeignColumns();
+
+        if (foreignColumns.length == 0) {
+            createObject(values, consumer);
             return;
         }
 
-        if (fieldType.isAssignableFrom(List.class)) {
-            if (!(value instanceof String)) {
-                log("Unable to process field: " + field.getName() + " for class " + object.getClass().getSimpleName() + ".");
-                consumer.accept(new ArrayList<>());
-                return;
-            }
+        List<ColumnData> columns = statements.getColumnData();
+        BormTable<?>[] foreignTables = new BormTable[foreignColumns.length];
 
-            List<Object> list = (List<Object>) ListUtil.stringToList((String) value);
-            List<O> newList = new ArrayList<>();
+        for (int i = 0; i < foreignColumns.length; i++) {
+            String foreignTableName = columns.get(foreignColumns[i]).getColumn().foreignTable();
+            foreignTables[i] = bormAPI.getTable(foreignTableName);
 
-            if (list.isEmpty()) {
-                consumer.accept(new ArrayList<>());
+            if (foreignTables[i] == null) {
+                log("Unable to load object, missing foreign table: " + foreignTableName);
+                consumer.accept(Optional.empty());
                 return;
             }
+        }
 
-            AtomicInteger loadedData = new AtomicInteger();
+        AtomicInteger remaining = new AtomicInteger(foreignColumns.length);
 
-            list.forEach(id -> {
-                if (!(id instanceof String)) {
-                    log("Unable to process item in list: " + id.toString() + " for class " + object.getClass().getSimpleName() + ".");
-                    loadedData.incrementAndGet();
+        for (int i = 0; i < foreignColumns.length; i++) {
+            int column = foreignColumns[i];
+            BormTable<?> foreignTable = foreignTables[i];
+
+            Consumer<Object> valueConsumer = value -> {
+                values[column] = value;
+
+                if (remaining.decrementAndGet() != 0) {
                     return;
                 }
 
-                id = StringProcessor.findAndProcess(primaryKeyType, (String) id);
-                getDataFromDB(id, true, true, o -> {
-                    synchronized (newList) {
-                        o.ifPresent(newList::add);
-                    }
+                createObject(values, consumer);
+            };
 
-                    if (loadedData.incrementAndGet() != list.size()) {
-                        return;
-                    }
+            if (joinedValues != null && joinedValues[column] != null) {
+                foreignTable.loadJoinedData(joinedValues[column], valueConsumer);
+                continue;
+            }
 
-                    consumer.accept(newList);
-                });
-            });
-            return;
+            foreignTable.loadPendingData(new Pair<>(columns.get(column).getField(), values[column]), foreignTable, valueConsumer);
+        }
+    }
+
+    private void createObject(@NonNull Object[] values, @NonNull Consumer<Optional<O>> consumer) {
+        O data;
+
+        try {
+            data = getRowDecoder().construct(values);
+        } catch (RuntimeException e) {
+            log("Unable to load object.");
+            consumer.accept(Optional.empty());
+            throw e;
         }
 
-        if (fieldType.isAssignableFrom(Map.class) || !(value instanceof String)) {
-            log("Unable to process field: " + field.getName() + " for class " + object.getClass().getSimpleName() + ".");
-            consumer.accept(new HashMap<>());
+        markPersisted(data, null);
+        consumer.accept(Optional.of(data));
+    }
+
+    /**
+     * Builds an object from the columns of a joined row, reusing the cached object if there is one.
+     */
+    private void loadJoinedData(@NonNull Object[] rawValues, @NonNull Consumer<Object> consumer) {
+        RowDecoder<O> decoder = getRowDecoder();
+        int primaryKeyColumn = decoder.getPrimaryKeyColumn();
+
+        if (primaryKeyColumn == -1 || rawValues[primaryKeyColumn] == null) {
+            consumer.accept(null);
             return;
         }
 
-        Map<Object, Object> map = HashMapUtil.mapFromString(null, (String) value);
-        HashMap<Object, O> newMap = new HashMap<>();
+        Optional<O> cachedData = getDataById(decoder.decode(primaryKeyColumn, rawValues[primaryKeyColumn]));
 
-        if (map.isEmpty()) {
-            consumer.accept(newMap);
+        if (cachedData.isPresent()) {
+            consumer.accept(cachedData.get());
             return;
         }
 
-        AtomicInteger loadedData = new AtomicInteger();
+        loadObject(rawValues, o -> consumer.accept(o.map(this::cacheLoadedData).orElse(null)));
+    }
 
-        map.forEach((key1, id) -> {
-            if (!(id instanceof String)) {
-                log("Unable to process item in map: " + id.toString() + " for class " + object.getClass().getSimpleName() + ".");
-                loadedData.incrementAndGet();
-                return;
-            }
+    /**
+     * The select used to load this table, joining single foreign references marked with joinFetch.
+     * Until every joined table is linked, a plain select is used.
+     */
+    JoinPlan getJoinPlan() {
+        JoinPlan plan = joinPlan;
 
-            id = StringProcessor.findAndProcess(primaryKeyType, (String) id);
+        if (plan != null) {
+            return plan;
+        }
 
-            getDataFromDB(id, true, true, o -> {
-                synchronized (newMap) {
-                    o.ifPresent(data -> newMap.put(key1, data));
-                }
+        plan = JoinPlan.compile(this);
 
-                if (loadedData.incrementAndGet() != newMap.size()) {
-                    return;
-                }
+        if (plan == null) {
+            return JoinPlan.plain(this);
+        }
 
-                consumer.accept(newMap);
-            });
-        });
+        joinPlan = plan;
+        return plan;
     }
 
-    public void loadObject(ResultSet result, Consumer<Optional<O>> consumer) throws SQLException {
+    RowDecoder<O> getRowDecoder() {
+        RowDecoder<O> decoder = rowDecoder;
+
+        if (decoder != null) {
+            return decoder;
+        }
+
         try {
-            List<NamedParameter> namedParameters = new ArrayList<>();
+            decoder = new RowDecoder<>(bormAPI, statements.getColumnData(), objectConstructor);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
 
-            for (ColumnData columnData : statements.getColumnData()) {
-                Column statementData = columnData.getColumn();
-                FieldProcessor processor = bormAPI.getFieldProcessor(TypeToken.asTypeToken(columnData.getField().getGenericType()));
+        rowDecoder = decoder;
+        return decoder;
+    }
 
-                Object object = result.getObject(columnData.getName());
-                Class<?> fieldTypeClass = columnData.getField().getType();
+    /**
+     * Finds the cached objects with the given value in an indexed field, see {@link net.bitbylogic.orm.annotation.Column#indexed()}.
+     * Objects are found by the value they had when they were last cached or saved.
+     *
+     * @param fieldName the name of the indexed field
+     * @param value     the value of the field, strings are converted to the field's type
+     * @return the matching objects
+     */
+    public List<O> findBy(@NonNull String fieldName, @Nullable Object value) {
+        ColumnIndex<O> index = indexes.get(fieldName.toLowerCase(Locale.ROOT));
 
-                if (fieldTypeClass.isEnum()) {
-                    for (Object enumConstant : fieldTypeClass.getEnumConstants()) {
-                        if (!((Enum<?>) enumConstant).name().equalsIgnoreCase((String) object)) {
-                            continue;
-                        }
+        if (index == null) {
+            bormAPI.getLogger().warning("Unable to find index for field: " + fieldName + " in table: " + table);
+            return new ArrayList<>();
+        }
 
-                        object = enumConstant;
-                        break;
-                    }
-                } else {
-                    object = processor.processFrom(object);
-
-                    if (fieldTypeClass != String.class &&
-                            processor instanceof DefaultFieldProcessor &&
-                            object instanceof String string) {
-                        if(!fieldTypeClass.isAssignableFrom(Byte[].class)) {
-                            object = StringProcessor.findAndProcess(fieldTypeClass, string);
-                        }
-                    }
+        if (value instanceof String && index.getColumnData().getField().getType() != String.class) {
+            try {
+                value = getRowDecoder().decode(index.getPosition(), value);
+            } catch (RuntimeException e) {
+                return new ArrayList<>();
+            }
+        }
 
-                    if (fieldTypeClass == boolean.class || fieldTypeClass == Boolean.class) {
-                        object = StringProcessor.findAndProcess(fieldTypeClass, String.valueOf(object));
-                    }
-                }
+        List<O> objects = new ArrayList<>();
+
+        for (Map.Entry<Object, O> entry : index.get(value)) {
+            if (dataMap.get(entry.getKey()) == entry.getValue()) {
+                objects.add(entry.getValue());
+            }
+        }
 
-                if (statementData.foreignTable().isEmpty()) {
-                    namedParameters.add(new NamedParameter(columnData.getField().getName(), fieldTypeClass, object));
+        return objects;
+    }
 
-                    if (namedParameters.size() < statements.getColumnData().size()) {
-                        continue;
-                    }
+    public Optional<O> findFirstBy(@NonNull String fieldName, @Nullable Object value) {
+        return findBy(fieldName, value).stream().findFirst();
+    }
 
-                    O data = ReflectionUtil.callConstructor(objectConstructor, namedParameters.toArray(new NamedParameter[]{}));
-                    consumer.accept(Optional.of(data));
-                    continue;
+    /**
+     * Removes an object from the cache without deleting it from the database.
+     */
+    public void uncache(@NonNull Object id) {
+        id = normalizeId(id);
+
+        dataMap.remove(id);
+        unindex(id);
+    }
+
+    /**
+     * Applies a change sent through Redis to the cached object with the row's id, without reading the database.
+     * Fields that aren't part of the row keep their values.
+     *
+     * @param fields the column names of the row's values, including the primary key
+     * @param row    the values of the columns as they were written to the database
+     * @return whether the object was cached
+     */
+    public boolean applyChange(@NonNull String[] fields, @NonNull String[] row) {
+        RowDecoder<O> decoder = getRowDecoder();
+        List<ColumnData> columns = statements.getColumnData();
+
+        if (decoder.getPrimaryKeyColumn() == -1 || fields.length != row.length) {
+            return false;
+        }
+
+        int[] rowColumns = new int[fields.length];
+        Object rawId = null;
+
+        for (int i = 0; i < fields.length; i++) {
+            rowColumns[i] = statements.getColumnData(fields[i]).map(columns::indexOf).orElse(-1);
+
+            if (rowColumns[i] == decoder.getPrimaryKeyColumn()) {
+                rawId = row[i];
+            }
+        }
+
+        Object id = rawId == null ? null : decoder.decode(decoder.getPrimaryKeyColumn(), rawId);
+        O object = id == null ? null : dataMap.get(id);
+
+        if (object == null) {
+            return false;
+        }
+
+        List<Integer> foreignFields = new ArrayList<>();
+
+        for (int i = 0; i < fields.length; i++) {
+            int column = rowColumns[i];
+
+            if (column == -1 || column == decoder.getPrimaryKeyColumn()) {
+                continue;
+            }
+
+            if (!columns.get(column).getColumn().foreignTable().isEmpty()) {
+                foreignFields.add(i);
+                continue;
+            }
+
+            columns.get(column).setValue(object, decoder.decode(column, row[i]));
+        }
+
+        Runnable complete = () -> {
+            if (dataMap.get(id) == object) {
+                index(object);
+            }
+
+            refreshPersistedValues(object, rowColumns, row);
+            onDataUpdated(object);
+        };
+
+        if (foreignFields.isEmpty()) {
+            complete.run();
+            return true;
+        }
+
+        AtomicInteger remaining = new AtomicInteger(foreignFields.size());
+
+        for (int i : foreignFields) {
+            ColumnData columnData = columns.get(rowColumns[i]);
+            BormTable<?> foreignTable = bormAPI.getTable(columnData.getColumn().foreignTable());
+
+            Consumer<Object> valueConsumer = value -> {
+                columnData.setValue(object, value);
+
+                if (remaining.decrementAndGet() == 0) {
+                    complete.run();
                 }
+            };
 
-                BormTable<?> foreignTable = bormAPI.getTable(statementData.foreignTable());
+            if (foreignTable == null) {
+                log("Unable to apply field " + columnData.getField().getName() + ", missing foreign table: " + columnData.getColumn().foreignTable());
 
-                if (foreignTable == null) {
-                    log("Unable to load object, missing foreign table: " + columnData.getColumn().cascadeDelete());
-                    continue;
+                if (remaining.decrementAndGet() == 0) {
+                    complete.run();
                 }
 
-                foreignTable.loadPendingData(new Pair<>(columnData.getField(), object), foreignTable, value -> {
-                    namedParameters.add(new NamedParameter(columnData.getField().getName(), fieldTypeClass, value));
+                continue;
+            }
 
-                    if (namedParameters.size() < statements.getColumnData().size()) {
-                        return;
-                    }
+            foreignTable.loadPendingData(new Pair<>(columnData.getField(), decoder.decode(rowColumns[i], row[i])), foreignTable, valueConsumer);
+        }
 
-                    try {
-                        O data = ReflectionUtil.callConstructor(objectConstructor, namedParameters.toArray(new NamedParameter[]{}));
+        dispatchForeignLoads();
+        return true;
+    }
 
-                        consumer.accept(Optional.of(data));
-                    } catch (InvocationTargetException | InstantiationException | IllegalAccessException e) {
-                        consumer.accept(Optional.empty());
-                        throw new RuntimeException(e);
-                    }
-                });
+    /**
+     * Updates the snapshot of the columns applied from a row, leaving the snapshot of other columns
+     * alone so changes to them that weren't saved yet are still written.
+     */
+    private void refreshPersistedValues(@NonNull O object, int[] rowColumns, @NonNull String[] row) {
+        Object[] persistedValues = object.getPersistedValues();
+
+        if (changeTracking != ChangeTracking.SNAPSHOT || persistedValues == null) {
+            return;
+        }
+
+        List<ColumnData> columns = statements.getColumnData();
+        List<ColumnData> saveColumns = statements.getSaveColumns();
+        Object[] newPersistedValues = persistedValues.clone();
+
+        for (int i = 0; i < rowColumns.length; i++) {
+            int saveColumn = rowColumns[i] == -1 ? -1 : saveColumns.indexOf(columns.get(rowColumns[i]));
+
+            if (saveColumn != -1 && saveColumn < newPersistedValues.length) {
+                newPersistedValues[saveColumn] = row[i];
             }
-        } catch (InvocationTargetException | InstantiationException | IllegalAccessException e) {
-            log("Unable to load object.");
-            throw new RuntimeException(e);
         }
 
-        consumer.accept(Optional.empty());
+        object.setPersistedValues(newPersistedValues);
+    }
+
+    private void index(@NonNull O object) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+
+        Object id = statements.getId(object);
+        indexes.values().forEach(index -> index.add(id, object));
+    }
+
+    private void unindex(@NonNull Object id) {
+        indexes.values().forEach(index -> index.remove(id));
+    }
+
+    /**
+     * Starts a query of the table's rows, filtered and ordered by the database, see {@link BormQuery}.
+     */
+    public BormQuery<O> query() {
+        return new BormQuery<>(this);
+    }
+
+    /**
+     * Streams every row of the table in pages of batchSize rows, without adding them to the cache.
+     * See {@link BormQuery#iterate(int)}.
+     */
+    public Stream<O> iterate(int batchSize) {
+        return query().cache(false).iterate(batchSize);
     }
 
     public Optional<O> getDataById(@NonNull Object id) {
-        if(!statements.getPrimaryKeyData().getField().getType().equals(String.class) && id instanceof String) {
-            return dataMap.entrySet().stream().filter(entry -> entry.getKey().toString().equalsIgnoreCase((String) id)).map(Map.Entry::getValue).findFirst();
+        return Optional.ofNullable(dataMap.get(normalizeId(id)));
+    }
+
+    /**
+     * Converts an id given as a string, like the ids sent through Redis, to the type of the primary key,
+     * using the primary key's field processor. Ids of other types are returned as they are.
+     */
+    public Object normalizeId(@NonNull Object id) {
+        ColumnData primaryKeyData = statements.getPrimaryKeyData();
+
+        if (!(id instanceof String) || primaryKeyData == null || primaryKeyData.getField().getType() == String.class) {
+            return id;
         }
 
-        return Optional.ofNullable(dataMap.get(id));
+        try {
+            RowDecoder<O> decoder = getRowDecoder();
+            Object normalizedId = decoder.decode(decoder.getPrimaryKeyColumn(), id);
+
+            return normalizedId == null ? id : normalizedId;
+        } catch (RuntimeException e) {
+            return id;
+        }
     }
 
     public void getDataFromDB(@NonNull Object id, boolean checkCache, @NonNull Consumer<Optional<O>> consumer) {
@@ -512,6 +1725,16 @@ public class BormTable<O extends BormObject> {
     }
 
     public void getDataFromDB(@NonNull Object id, boolean checkCache, boolean cache, @NonNull Consumer<Optional<O>> consumer) {
+        getDataFromDB(id, checkCache, cache, TaskPriority.NORMAL, consumer);
+    }
+
+    /**
+     * Loads the object with the id from the database. Concurrent loads of the same id that add it
+     * to the cache share a single query, and every caller receives the same cached object.
+     * With checkCache, ids remembered by the negative cache are answered without a query. Without it,
+     * an object that's already cached is updated in place from the row and returned.
+     */
+    public void getDataFromDB(@NonNull Object id, boolean checkCache, boolean cache, @NonNull TaskPriority priority, @NonNull Consumer<Optional<O>> consumer) {
         if (checkCache) {
             Optional<O> optionalValue = getDataById(id);
 
@@ -526,44 +1749,111 @@ public class BormTable<O extends BormObject> {
             return;
         }
 
-        bormAPI.executeQuery(String.format("SELECT * FROM %s WHERE %s = '%s';", table, statements.getPrimaryKeyData().getName(), id), result -> {
-            try {
-                if (result == null || !result.next()) {
-                    consumer.accept(Optional.empty());
-                    return;
+        Object key = normalizeId(id);
+        O evictedData = evictingData.get(key);
+
+        if (evictedData != null) {
+            consumer.accept(Optional.of(cache ? cacheLoadedData(evictedData) : evictedData));
+            return;
+        }
+
+        Cache<Object, Boolean> missingIds = this.missingIds;
+
+        if (checkCache && missingIds != null && missingIds.getIfPresent(key) != null) {
+            consumer.accept(Optional.empty());
+            return;
+        }
+
+        if (!cache) {
+            queryData(key, false, false, priority, consumer);
+            return;
+        }
+
+        synchronized (pendingDataLoads) {
+            List<Consumer<Optional<O>>> waiting = pendingDataLoads.get(key);
+
+            if (waiting != null) {
+                waiting.add(consumer);
+                return;
+            }
+
+            waiting = new ArrayList<>();
+            waiting.add(consumer);
+            pendingDataLoads.put(key, waiting);
+        }
+
+        queryData(key, true, !checkCache, priority, data -> {
+            List<Consumer<Optional<O>>> waiting;
+
+            synchronized (pendingDataLoads) {
+                waiting = pendingDataLoads.remove(key);
+            }
+
+            if (waiting == null) {
+                return;
+            }
+
+            for (Consumer<Optional<O>> waitingConsumer : waiting) {
+                try {
+                    waitingConsumer.accept(data);
+                } catch (RuntimeException e) {
+                    log("Error handling loaded data for id " + key + ": " + e.getMessage());
                 }
+            }
+        });
+    }
 
-                loadObject(result, o -> {
-                    try {
-                        boolean last = result.next();
+    /**
+     * Selects the object with the id. The consumer is called exactly once, with an empty optional if the query fails.
+     *
+     * @param refresh whether an already cached object is updated from the row, see {@link #refreshLoadedData(BormObject)}
+     */
+    private void queryData(@NonNull Object id, boolean cache, boolean refresh, @NonNull TaskPriority priority, @NonNull Consumer<Optional<O>> consumer) {
+        AtomicBoolean completed = new AtomicBoolean();
+        Consumer<Optional<O>> completion = data -> {
+            if (completed.compareAndSet(false, true)) {
+                consumer.accept(data);
+            }
+        };
 
-                        if (o.isEmpty()) {
-                            if (!last) {
-                                return;
-                            }
+        long invalidations = missingInvalidations.get();
+        JoinPlan plan = getJoinPlan();
+        String query = plan.isEmpty() ? statements.getSelectStatement()
+                : plan.getSelectQuery(plan.qualify(statements.getPrimaryKeyData().getName()) + " = ?");
 
-                            consumer.accept(Optional.empty());
-                            return;
-                        }
+        bormAPI.executeQuery(query, priority, result -> {
+            try {
+                if (result == null || !result.next()) {
+                    Cache<Object, Boolean> missingIds = this.missingIds;
 
-                        O data = o.get();
+                    if (missingIds != null) {
+                        missingIds.put(id, Boolean.TRUE);
 
-                        if (cache && !dataMap.containsKey(statements.getId(data))) {
-                            dataMap.put(statements.getId(data), data);
-                            data.setOwningTable(this);
-                            onDataAdded(data);
+                        // Forget the miss again if the id was saved or cached while the query ran
+                        if (missingInvalidations.get() != invalidations || dataMap.containsKey(id)) {
+                            missingIds.invalidate(id);
                         }
-
-                        consumer.accept(Optional.of(data));
-                    } catch (SQLException e) {
-                        consumer.accept(Optional.empty());
-                        throw new RuntimeException(e);
                     }
-                });
+
+                    completion.accept(Optional.empty());
+                    return;
+                }
+
+                invalidateMissing(id);
+
+                Object[] rawValues = getRowDecoder().read(result, getRowDecoder().getColumnIndexes(result.getMetaData()));
+
+                loadObject(rawValues, plan.read(result, plan.getColumnIndexes(result.getMetaData())),
+                        o -> completion.accept(!cache ? o : o.map(refresh ? this::refreshLoadedData : this::cacheLoadedData)));
+
+                dispatchForeignLoads();
             } catch (SQLException exception) {
-                consumer.accept(Optional.empty());
+                completion.accept(Optional.empty());
                 throw new RuntimeException(exception);
             }
+        }, statements.getIdValue(id)).exceptionally(throwable -> {
+            completion.accept(Optional.empty());
+            return null;
         });
     }
 
@@ -571,4 +1861,24 @@ public class BormTable<O extends BormObject> {
         bormAPI.getLogger().info("(" + getClass().getSimpleName() + "): " + message);
     }
 
+    /**
+     * @param attempts the amount of failed batches the save was part of
+     */
+    private record PendingSave<O>(O object, List<Consumer<Optional<ResultSet>>> callbacks, int attempts) {
+    }
+
+    /**
+     * @param values  the object's save values
+     * @param columns the indexes of the save columns that were written, or null if the save statement was used
+     */
+    private record SavedObject<O>(O object, Object[] values, @Nullable int[] columns) {
+    }
+
+    /**
+     * @param columns     the indexes of the save columns written by the query, or null if it's the save statement
+     * @param dirtyFields the fields marked dirty when the operation was built, cleared once it's written
+     */
+    private record SaveOperation(String query, Object[] arguments, @Nullable int[] columns, Set<String> dirtyFields) {
+    }
+
 }
@@ -0,0 +1,22 @@
+package net.bitbylogic.orm.data;
+
+public enum ChangeTracking {
+
+    /**
+     * Every save writes all columns.
+     */
+    NONE,
+
+    /**
+     * Saves of persisted objects only write the fields passed to {@link BormObject#markDirty(String...)},
+     * objects without marked fields are written in full.
+     */
+    EXPLICIT,
+
+    /**
+     * Saves of persisted objects compare every column against the values last written or loaded,
+     * and only write the columns that changed or were marked dirty.
+     */
+    SNAPSHOT;
+
+}
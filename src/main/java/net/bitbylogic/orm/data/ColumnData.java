@@ -2,12 +2,14 @@ package net.bitbylogic.orm.data;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NonNull;
 import lombok.Setter;
 import net.bitbylogic.orm.annotation.Column;
 import net.bitbylogic.orm.util.DataTypeInferencer;
 import net.bitbylogic.utils.reflection.NamedParameter;
 import org.jetbrains.annotations.Nullable;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
 import java.util.List;
 
@@ -20,6 +22,17 @@ public class ColumnData {
     private final Column column;
     private final List<String> parentObjectFields;
 
+    /**
+     * Reads the field from the table's object, going through any parent sub objects, as (Object)Object.
+     */
+    private final MethodHandle getter;
+
+    /**
+     * Writes the field on the table's object, going through any parent sub objects, as (Object, Object)void.
+     * Null if the field can't be written.
+     */
+    private final @Nullable MethodHandle setter;
+
     @Setter
     private ColumnData foreignKeyData;
 
@@ -39,6 +52,30 @@ public class ColumnData {
                 ? DataTypeInferencer.inferDataType(field.getType()) : column.dataType();
     }
 
+    public Object getValue(@NonNull Object object) {
+        try {
+            return (Object) getter.invokeExact(object);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable throwable) {
+            throw new RuntimeException(throwable);
+        }
+    }
+
+    public void setValue(@NonNull Object object, @Nullable Object value) {
+        if (setter == null) {
+            throw new IllegalStateException("Field " + field.getName() + " can't be written");
+        }
+
+        try {
+            setter.invokeExact(object, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable throwable) {
+            throw new RuntimeException(throwable);
+        }
+    }
+
     public NamedParameter asNamedParameter(@Nullable Object value) {
         return new NamedParameter(field.getName(), field.getType(), value);
     }
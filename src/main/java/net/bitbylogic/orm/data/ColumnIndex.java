@@ -0,0 +1,85 @@
+package net.bitbylogic.orm.data;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory hash index of a table's cached objects by the value of one column, for
+ * columns marked with {@code indexed}. Objects are indexed by the value they had when they
+ * were last cached or saved.
+ */
+class ColumnIndex<O extends BormObject> {
+
+    private static final Object NULL_VALUE = new Object();
+
+    @Getter
+    private final ColumnData columnData;
+
+    @Getter
+    private final int position;
+
+    private final Map<Object, Map<Object, O>> entries = new ConcurrentHashMap<>();
+    private final Map<Object, Object> indexedValues = new ConcurrentHashMap<>();
+
+    ColumnIndex(@NonNull ColumnData columnData, int position) {
+        this.columnData = columnData;
+        this.position = position;
+    }
+
+    void add(@NonNull Object id, @NonNull O object) {
+        Object value = key(columnData.getValue(object));
+        Object previousValue = indexedValues.put(id, value);
+
+        if (previousValue != null && !previousValue.equals(value)) {
+            removeEntry(previousValue, id);
+        }
+
+        entries.compute(value, (key, objects) -> {
+            if (objects == null) {
+                objects = new ConcurrentHashMap<>();
+            }
+
+            objects.put(id, object);
+            return objects;
+        });
+    }
+
+    void remove(@NonNull Object id) {
+        Object value = indexedValues.remove(id);
+
+        if (value != null) {
+            removeEntry(value, id);
+        }
+    }
+
+    void clear() {
+        entries.clear();
+        indexedValues.clear();
+    }
+
+    /**
+     * @return the ids and objects indexed under the value
+     */
+    Collection<Map.Entry<Object, O>> get(@Nullable Object value) {
+        Map<Object, O> objects = entries.get(key(value));
+        return objects == null ? List.of() : objects.entrySet();
+    }
+
+    private void removeEntry(@NonNull Object value, @NonNull Object id) {
+        entries.computeIfPresent(value, (key, objects) -> {
+            objects.remove(id);
+            return objects.isEmpty() ? null : objects;
+        });
+    }
+
+    private static Object key(@Nullable Object value) {
+        return value == null ? NULL_VALUE : value;
+    }
+
+}
@@ -0,0 +1,161 @@
+package net.bitbylogic.orm.data;
+
+import lombok.NonNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The select used to load a table, with a LEFT JOIN for every single foreign reference
+ * marked with {@code joinFetch}. The joined table's columns are selected under an alias
+ * prefix, so the referenced object can be decoded from the same row as its parent.
+ */
+class JoinPlan {
+
+    private static final String ALIAS_PREFIX = "borm_j";
+
+    private final String table;
+    private final String selectClause;
+    private final int columnCount;
+
+    private final int[] joinedColumns;
+    private final BormTable<?>[] foreignTables;
+
+    private JoinPlan(@NonNull String table, @NonNull String selectClause, int columnCount, int[] joinedColumns, BormTable<?>[] foreignTables) {
+        this.table = table;
+        this.selectClause = selectClause;
+        this.columnCount = columnCount;
+        this.joinedColumns = joinedColumns;
+        this.foreignTables = foreignTables;
+    }
+
+    static JoinPlan plain(@NonNull BormTable<?> table) {
+        return new JoinPlan(table.getTable(), "SELECT * FROM " + table.getTable(), table.getStatements().getColumnData().size(), new int[0], new BormTable[0]);
+    }
+
+    /**
+     * @return the plan for the table, or null if a joined foreign table isn't linked yet
+     */
+    static @Nullable JoinPlan compile(@NonNull BormTable<?> table) {
+        List<ColumnData> columns = table.getStatements().getColumnData();
+
+        StringBuilder select = new StringBuilder("SELECT ").append(table.getTable()).append(".*");
+        StringBuilder joins = new StringBuilder();
+
+        List<Integer> joinedColumns = new ArrayList<>();
+        List<BormTable<?>> foreignTables = new ArrayList<>();
+
+        for (int i = 0; i < columns.size(); i++) {
+            ColumnData columnData = columns.get(i);
+
+            if (!columnData.getColumn().joinFetch() || columnData.getColumn().foreignTable().isEmpty()
+                    || !BormObject.class.isAssignableFrom(columnData.getField().getType())) {
+                continue;
+            }
+
+            BormTable<?> foreignTable = columnData.getForeignTable();
+
+            if (foreignTable == null) {
+                return null;
+            }
+
+            ColumnData foreignKeyData = foreignTable.getStatements().getPrimaryKeyData();
+
+            if (foreignKeyData == null) {
+                continue;
+            }
+
+            String alias = ALIAS_PREFIX + joinedColumns.size();
+
+            for (ColumnData foreignColumn : foreignTable.getStatements().getColumnData()) {
+                select.append(", ").append(alias).append('.').append(foreignColumn.getName())
+                        .append(" AS ").append(alias).append('_').append(foreignColumn.getName());
+            }
+
+            joins.append(" LEFT JOIN ").append(foreignTable.getTable()).append(' ').append(alias)
+                    .append(" ON ").append(alias).append('.').append(foreignKeyData.getName())
+                    .append(" = ").append(table.getTable()).append('.').append(columnData.getName());
+
+            joinedColumns.add(i);
+            foreignTables.add(foreignTable);
+        }
+
+        if (joinedColumns.isEmpty()) {
+            return plain(table);
+        }
+
+        return new JoinPlan(table.getTable(), select.append(" FROM ").append(table.getTable()).append(joins).toString(), columns.size(),
+                joinedColumns.stream().mapToInt(Integer::intValue).toArray(), foreignTables.toArray(new BormTable[0]));
+    }
+
+    boolean isEmpty() {
+        return joinedColumns.length == 0;
+    }
+
+    String getSelectQuery(@Nullable String condition) {
+        return getSelectQuery(condition, "");
+    }
+
+    /**
+     * @param clauses clauses following the condition, such as ORDER BY or LIMIT
+     */
+    String getSelectQuery(@Nullable String condition, @NonNull String clauses) {
+        return (condition == null ? selectClause : selectClause + " WHERE " + condition) + clauses + ";";
+    }
+
+    /**
+     * Qualifies a column of the table, so it can't clash with a joined table's column.
+     */
+    String qualify(@NonNull String column) {
+        return table + "." + column;
+    }
+
+    /**
+     * Resolves the result indexes of every joined table's columns, or null if nothing is joined.
+     */
+    int[][] getColumnIndexes(@NonNull ResultSetMetaData metaData) throws SQLException {
+        if (isEmpty()) {
+            return null;
+        }
+
+        int[][] columnIndexes = new int[joinedColumns.length][];
+
+        for (int i = 0; i < joinedColumns.length; i++) {
+            columnIndexes[i] = foreignTables[i].getRowDecoder().getColumnIndexes(metaData, ALIAS_PREFIX + i + "_");
+        }
+
+        return columnIndexes;
+    }
+
+    /**
+     * Reads the raw values of every joined object, indexed by the column referencing it.
+     */
+    Object[][] read(@NonNull ResultSet result, @Nullable int[][] columnIndexes) throws SQLException {
+        if (columnIndexes == null) {
+            return null;
+        }
+
+        Object[][] joinedValues = new Object[columnCount][];
+
+        for (int i = 0; i < joinedColumns.length; i++) {
+            joinedValues[joinedColumns[i]] = foreignTables[i].getRowDecoder().read(result, columnIndexes[i]);
+        }
+
+        return joinedValues;
+    }
+
+    boolean isJoined(@NonNull BormTable<?> foreignTable) {
+        for (BormTable<?> joinedTable : foreignTables) {
+            if (joinedTable == foreignTable) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+}
@@ -0,0 +1,232 @@
+package net.bitbylogic.orm.data;
+
+import lombok.Getter;
+import lombok.NonNull;
+import net.bitbylogic.orm.BormAPI;
+import net.bitbylogic.orm.processor.FieldProcessor;
+import net.bitbylogic.orm.processor.impl.DefaultFieldProcessor;
+import net.bitbylogic.utils.StringProcessor;
+import net.bitbylogic.utils.reflection.NamedParameter;
+import net.bitbylogic.utils.reflection.ReflectionUtil;
+import net.bitbylogic.utils.reflection.TypeToken;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Parameter;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Turns rows of a table into objects. Field processors, enum constants and the constructor
+ * argument order are resolved once when the decoder is built, so decoding a row only does the
+ * work that depends on its values.
+ */
+class RowDecoder<O extends BormObject> {
+
+    private final List<ColumnData> columns;
+    private final ColumnDecoder[] columnDecoders;
+
+    @Getter
+    private final int[] foreignColumns;
+
+    @Getter
+    private final int primaryKeyColumn;
+
+    /**
+     * The column of each constructor argument, or null if the constructor was compiled without parameter names.
+     */
+    private final @Nullable int[] argumentColumns;
+    private final Constructor<O> objectConstructor;
+    private final MethodHandle constructor;
+
+    RowDecoder(@NonNull BormAPI bormAPI, @NonNull List<ColumnData> columns, @NonNull Constructor<O> objectConstructor) throws IllegalAccessException {
+        this.columns = List.copyOf(columns);
+        this.columnDecoders = columns.stream().map(columnData -> new ColumnDecoder(bormAPI, columnData)).toArray(ColumnDecoder[]::new);
+        this.foreignColumns = IntStream.range(0, columns.size()).filter(i -> !columns.get(i).getColumn().foreignTable().isEmpty()).toArray();
+        this.primaryKeyColumn = IntStream.range(0, columns.size()).filter(i -> columns.get(i).getColumn().primaryKey()).findFirst().orElse(-1);
+        this.argumentColumns = resolveArgumentColumns(objectConstructor);
+        this.objectConstructor = objectConstructor;
+
+        if (argumentColumns == null) {
+            bormAPI.getLogger().warning("The constructor of " + objectConstructor.getDeclaringClass().getSimpleName()
+                    + " has no parameter names, compile with -parameters to build its objects without reflection.");
+        }
+
+        objectConstructor.setAccessible(true);
+
+        this.constructor = MethodHandles.lookup().unreflectConstructor(objectConstructor)
+                .asSpreader(Object[].class, objectConstructor.getParameterCount())
+                .asType(MethodType.methodType(Object.class, Object[].class));
+    }
+
+    int[] getColumnIndexes(@NonNull ResultSetMetaData metaData) throws SQLException {
+        return getColumnIndexes(metaData, "");
+    }
+
+    /**
+     * Resolves the index of every column in the result, in column order, with columns
+     * labelled as the prefix followed by their name.
+     */
+    int[] getColumnIndexes(@NonNull ResultSetMetaData metaData, @NonNull String labelPrefix) throws SQLException {
+        Map<String, Integer> labels = new HashMap<>();
+
+        for (int i = metaData.getColumnCount(); i >= 1; i--) {
+            labels.put(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+        }
+
+        int[] indexes = new int[columns.size()];
+
+        for (int i = 0; i < indexes.length; i++) {
+            Integer index = labels.get((labelPrefix + columns.get(i).getName()).toLowerCase(Locale.ROOT));
+
+            if (index == null) {
+                throw new SQLException("Missing column " + labelPrefix + columns.get(i).getName() + " in result");
+            }
+
+            indexes[i] = index;
+        }
+
+        return indexes;
+    }
+
+    Object[] read(@NonNull ResultSet result, int[] columnIndexes) throws SQLException {
+        Object[] values = new Object[columnIndexes.length];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = result.getObject(columnIndexes[i]);
+        }
+
+        return values;
+    }
+
+    Object decode(int column, @Nullable Object value) {
+        return columnDecoders[column].decode(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    O construct(@NonNull Object[] values) {
+        if (argumentColumns == null) {
+            return constructReflectively(values);
+        }
+
+        Object[] arguments = new Object[argumentColumns.length];
+
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = values[argumentColumns[i]];
+        }
+
+        try {
+            return (O) (Object) constructor.invokeExact(arguments);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable throwable) {
+            throw new RuntimeException(throwable);
+        }
+    }
+
+    /**
+     * Builds the object by matching its values to the constructor's parameters by name through reflection,
+     * for constructors whose argument order can't be resolved up front.
+     */
+    private O constructReflectively(@NonNull Object[] values) {
+        NamedParameter[] parameters = IntStream.range(0, columns.size())
+                .mapToObj(i -> columns.get(i).asNamedParameter(values[i]))
+                .toArray(NamedParameter[]::new);
+
+        try {
+            return ReflectionUtil.callConstructor(objectConstructor, parameters);
+        } catch (InvocationTargetException | InstantiationException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Matches every constructor parameter to the column of the field with the same name.
+     *
+     * @return the column of each argument, or null if a parameter has no name or no matching column
+     */
+    private @Nullable int[] resolveArgumentColumns(@NonNull Constructor<O> objectConstructor) {
+        Parameter[] parameters = objectConstructor.getParameters();
+        int[] argumentColumns = new int[parameters.length];
+
+        for (int i = 0; i < parameters.length; i++) {
+            if (!parameters[i].isNamePresent()) {
+                return null;
+            }
+
+            argumentColumns[i] = -1;
+
+            for (int column = 0; column < columns.size(); column++) {
+                if (columns.get(column).getField().getName().equals(parameters[i].getName())) {
+                    argumentColumns[i] = column;
+                    break;
+                }
+            }
+
+            if (argumentColumns[i] == -1) {
+                return null;
+            }
+        }
+
+        return argumentColumns;
+    }
+
+    private static class ColumnDecoder {
+
+        private final Class<?> fieldType;
+        private final FieldProcessor<Object> processor;
+        private final @Nullable Map<String, Object> enumConstants;
+
+        private final boolean parseStrings;
+        private final boolean booleanType;
+
+        @SuppressWarnings("unchecked")
+        private ColumnDecoder(@NonNull BormAPI bormAPI, @NonNull ColumnData columnData) {
+            this.fieldType = columnData.getField().getType();
+            this.processor = (FieldProcessor<Object>) bormAPI.getFieldProcessor(TypeToken.asTypeToken(columnData.getField().getGenericType()));
+
+            if (fieldType.isEnum()) {
+                Map<String, Object> constants = new HashMap<>();
+
+                for (Object enumConstant : fieldType.getEnumConstants()) {
+                    constants.put(((Enum<?>) enumConstant).name().toLowerCase(Locale.ROOT), enumConstant);
+                }
+
+                this.enumConstants = constants;
+            } else {
+                this.enumConstants = null;
+            }
+
+            this.parseStrings = fieldType != String.class && processor instanceof DefaultFieldProcessor
+                    && !fieldType.isAssignableFrom(Byte[].class);
+            this.booleanType = fieldType == boolean.class || fieldType == Boolean.class;
+        }
+
+        private Object decode(@Nullable Object value) {
+            if (enumConstants != null) {
+                return value == null ? null : enumConstants.get(value.toString().toLowerCase(Locale.ROOT));
+            }
+
+            Object object = processor.processFrom(value);
+
+            if (parseStrings && object instanceof String string) {
+                object = StringProcessor.findAndProcess(fieldType, string);
+            }
+
+            if (booleanType && !(object instanceof Boolean)) {
+                object = StringProcessor.findAndProcess(fieldType, String.valueOf(object));
+            }
+
+            return object;
+        }
+
+    }
+
+}
@@ -5,7 +5,9 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import net.bitbylogic.orm.BormAPI;
 import net.bitbylogic.orm.annotation.Column;
+import net.bitbylogic.orm.annotation.Index;
 import net.bitbylogic.orm.data.BormObject;
+import net.bitbylogic.orm.data.BormRef;
 import net.bitbylogic.orm.data.BormTable;
 import net.bitbylogic.orm.data.ColumnData;
 import net.bitbylogic.orm.processor.FieldProcessor;
@@ -13,22 +15,45 @@ import net.bitbylogic.utils.HashMapUtil;
 import net.bitbylogic.utils.ListUtil;
 import net.bitbylogic.utils.reflection.ReflectionUtil;
 import net.bitbylogic.utils.reflection.TypeToken;
+import org.jetbrains.annotations.Nullable;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @RequiredArgsConstructor
 @Getter
 public abstract class BormStatements<O extends BormObject> {
 
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
     private final BormAPI bormAPI;
     private final String tableName;
 
     private final List<ColumnData> columnData = new ArrayList<>();
+    private final List<IndexData> indexData = new ArrayList<>();
+
+    private List<ColumnData> saveColumns;
+    private ColumnData primaryKeyData;
+
+    private String saveStatement;
+    private String deleteStatement;
+    private String selectStatement;
+
+    private final Map<String, String> updateStatements = new ConcurrentHashMap<>();
 
     public void loadColumnData(@NonNull Object object, List<String> parentObjectFields) {
+        loadColumnData(object, parentObjectFields, MethodHandles.identity(Object.class));
+    }
+
+    private void loadColumnData(@NonNull Object object, List<String> parentObjectFields, MethodHandle parentGetter) {
         List<Field> fields = new ArrayList<>();
 
         fields.addAll(Arrays.asList(object.getClass().getFields()));
@@ -44,18 +69,32 @@ public abstract class BormStatements<O extends BormObject> {
             Column data = field.getAnnotation(Column.class);
 
             if (!data.foreignTable().isEmpty() &&
-                    (!field.getType().isInstance(BormObject.class) &&
+                    (!BormObject.class.isAssignableFrom(field.getType()) &&
+                            field.getType() != BormRef.class && !BormRef.isReferenceList(field) &&
                             !ReflectionUtil.isListOf(field, BormObject.class) &&
                             !ReflectionUtil.isMapOf(field, BormObject.class))) {
-                getBormAPI().getLogger().warning("(" + object.getClass().getSimpleName() + "): Skipped field " + field.getName() + ", foreign classes must extend BormObject!");
+                getBormAPI().getLogger().warning("(" + object.getClass().getSimpleName() + "): Skipped field " + field.getName() + ", foreign classes must extend BormObject or be referenced with BormRef!");
+                return;
+            }
+
+            if (data.joinFetch() && (data.foreignTable().isEmpty() || !BormObject.class.isAssignableFrom(field.getType()))) {
+                getBormAPI().getLogger().warning("(" + object.getClass().getSimpleName() + "): joinFetch on field " + field.getName() + " is ignored, it only applies to single foreign objects!");
+            }
+
+            MethodHandle getter;
+
+            try {
+                field.setAccessible(true);
+                getter = MethodHandles.filterReturnValue(parentGetter, LOOKUP.unreflectGetter(field).asType(GETTER_TYPE));
+            } catch (IllegalAccessException e) {
+                e.printStackTrace();
                 return;
             }
 
             if (data.subClass()) {
                 try {
-                    field.setAccessible(true);
                     parentObjectFields.add(field.getName());
-                    loadColumnData(field.get(object), new ArrayList<>(parentObjectFields));
+                    loadColumnData(field.get(object), new ArrayList<>(parentObjectFields), getter);
                     parentObjectFields.clear();
                     parentObjectFields.addAll(originalFields);
                 } catch (IllegalAccessException e) {
@@ -64,14 +103,82 @@ public abstract class BormStatements<O extends BormObject> {
                 return;
             }
 
-            columnData.add(new ColumnData(field, object.getClass().getName(), data, parentObjectFields, null, null));
+            MethodHandle setter;
+
+            try {
+                setter = MethodHandles.filterArguments(LOOKUP.unreflectSetter(field).asType(SETTER_TYPE), 0, parentGetter);
+            } catch (IllegalAccessException e) {
+                setter = null;
+            }
+
+            columnData.add(new ColumnData(field, object.getClass().getName(), data, parentObjectFields, getter, setter, null, null));
         });
     }
 
+    public void loadIndexData(@NonNull Class<?> objectClass) {
+        for (Index index : objectClass.getAnnotationsByType(Index.class)) {
+            List<ColumnData> columns = new ArrayList<>();
+
+            for (String name : index.columns()) {
+                Optional<ColumnData> indexedColumn = findColumnData(name);
+
+                if (indexedColumn.isEmpty()) {
+                    getBormAPI().getLogger().warning("(" + objectClass.getSimpleName() + "): Skipped index on " + String.join(", ", index.columns()) + ", unknown column " + name + "!");
+                    columns.clear();
+                    break;
+                }
+
+                columns.add(indexedColumn.get());
+            }
+
+            if (columns.isEmpty()) {
+                continue;
+            }
+
+            String name = index.name().isEmpty()
+                    ? tableName + "_" + String.join("_", columns.stream().map(ColumnData::getName).toList()) + "_idx" : index.name();
+
+            indexData.add(new IndexData(name, List.copyOf(columns), index.unique()));
+        }
+    }
+
     public Optional<ColumnData> getColumnData(@NonNull String name) {
         return columnData.stream().filter(data -> data.getName().equalsIgnoreCase(name)).findFirst();
     }
 
+    /**
+     * Determines whether a name given for a field, like those passed to {@link net.bitbylogic.orm.data.BormObject#markDirty(String...)},
+     * refers to the column. Column names are matched first, field names only match columns that aren't part of a sub object,
+     * since those can share a field name with other columns.
+     */
+    public boolean matchesColumn(@NonNull ColumnData columnData, @NonNull String name) {
+        if (columnData.getName().equalsIgnoreCase(name)) {
+            return true;
+        }
+
+        return columnData.getParentObjectFields().isEmpty() && columnData.getField().getName().equalsIgnoreCase(name) && getColumnData(name).isEmpty();
+    }
+
+    /**
+     * Finds a column by its column name, or otherwise by its field name.
+     */
+    public Optional<ColumnData> findColumnData(@NonNull String name) {
+        return getColumnData(name).or(() -> columnData.stream().filter(data -> data.getField().getName().equalsIgnoreCase(name)).findFirst());
+    }
+
+    public void compileStatements() {
+        this.saveColumns = Collections.unmodifiableList(getSaveColumns());
+        this.saveStatement = getDataSaveStatement();
+
+        if (getPrimaryKeyData() == null) {
+            bormAPI.getLogger().severe("(" + tableName + ") No primary key for object, delete and select statements won't be available!");
+            return;
+        }
+
+        this.deleteStatement = getDataDeleteStatement();
+        this.selectStatement = getDataSelectStatement();
+    }
+
     public abstract String getTableCreateStatement();
 
     public String getTableClearStatement() {
@@ -80,113 +187,132 @@ public abstract class BormStatements<O extends BormObject> {
 
     protected abstract String getStatementDataBlock(boolean includeMetadata, String... includedFields);
 
-    public abstract String getDataSaveStatement(O object, String... includedFields);
+    public abstract String getDataSaveStatement(String... includedFields);
+
+    /**
+     * Returns the indexes of the save columns that the save statement writes when the row already exists.
+     */
+    public abstract int[] getSaveStatementColumns();
 
-    public abstract String getDataDeleteStatement(O object);
+    public abstract String getDataDeleteStatement();
 
-    protected abstract String getUpdateStatement(O object, String... includedFields);
+    public abstract String getDataSelectStatement();
+
+    public abstract String getDataUpdateStatement(String... includedFields);
+
+    public String getUpdateStatement(String... includedFields) {
+        return updateStatements.computeIfAbsent(String.join(",", includedFields), key -> getDataUpdateStatement(includedFields));
+    }
 
     public abstract String getFormattedData(@NonNull ColumnData columnData);
 
-    protected String getValuesDataBlock(O object, String... includedFields) {
-        StringBuilder builder = new StringBuilder();
-        List<String> data = new ArrayList<>();
+    public abstract String getIndexCreateStatement(@NonNull IndexData indexData);
 
-        columnData.stream().filter(columnData -> columnData.getColumn().primaryKey()).findFirst().ifPresent(columnData -> {
-            try {
-                Object fieldObject = getFieldObject(object, columnData);
+    /**
+     * @return a query counting the indexes of the table with a given name, taking the table and index name
+     * as arguments, or null if the create statement already skips existing indexes
+     */
+    public abstract @Nullable String getIndexExistsQuery();
 
-                Column statementData = columnData.getColumn();
-                Field field = columnData.getField();
-                field.setAccessible(true);
-                Object fieldValue = field.get(fieldObject);
+    protected String getIndexColumnBlock(@NonNull IndexData indexData) {
+        return String.join(", ", indexData.columns().stream().map(ColumnData::getName).toList());
+    }
 
-                FieldProcessor processor = bormAPI.getFieldProcessor(TypeToken.asTypeToken(field.getGenericType()));
+    protected String getPlaceholderBlock(int amount) {
+        return String.join(", ", Collections.nCopies(amount, "?"));
+    }
 
-                if (statementData.foreignTable().isEmpty()) {
-                    data.add(String.format("%s", fieldValue == null ? "NULL" : "'" + ((String) processor.processTo(fieldValue)).replace("'", "''") + "'"));
-                    return;
-                }
+    public List<ColumnData> getSaveColumns(String... includedFields) {
+        if (includedFields.length == 0 && saveColumns != null) {
+            return saveColumns;
+        }
 
-                data.add(String.format("%s", fieldValue == null ? "NULL" : "'" + getForeignFieldIdData(object, field, columnData) + "'"));
-            } catch (IllegalAccessException e) {
-                e.printStackTrace();
-            }
-        });
+        List<ColumnData> columns = new ArrayList<>();
+
+        ColumnData primaryKeyData = getPrimaryKeyData();
+
+        if (primaryKeyData != null) {
+            columns.add(primaryKeyData);
+        }
 
         columnData.forEach(columnData -> {
             if (columnData.getColumn().primaryKey() || columnData.getColumn().autoIncrement()) {
                 return;
             }
 
-            if (includedFields.length != 0 && Arrays.stream(includedFields).noneMatch(field -> field.equalsIgnoreCase(columnData.getField().getName()))) {
+            if (includedFields.length != 0 && Arrays.stream(includedFields).noneMatch(field -> matchesColumn(columnData, field))) {
                 return;
             }
 
-            try {
-                Object fieldObject = getFieldObject(object, columnData);
+            columns.add(columnData);
+        });
 
-                Column statementData = columnData.getColumn();
-                Field field = columnData.getField();
-                field.setAccessible(true);
-                Object fieldValue = field.get(fieldObject);
+        return columns;
+    }
 
-                FieldProcessor processor = bormAPI.getFieldProcessor(TypeToken.asTypeToken(field.getGenericType()));
-                Object processedValue = fieldValue == null ? null : processor.processTo(fieldValue);
+    public Object[] getDataSaveValues(O object, String... includedFields) {
+        List<ColumnData> columns = getSaveColumns(includedFields);
+        Object[] values = new Object[columns.size()];
 
-                if(processedValue instanceof String stringValue) {
-                    processedValue = stringValue.replace("'", "''");
-                }
+        for (int i = 0; i < columns.size(); i++) {
+            values[i] = getColumnValue(object, columns.get(i));
+        }
 
-                if (processedValue instanceof byte[] bytes) {
-                    processedValue = Base64.getEncoder().encodeToString(bytes);
-                }
+        return values;
+    }
 
-                if (statementData.foreignTable().isEmpty()) {
-                    data.add(String.format("%s", fieldValue == null ? "NULL" : "'" + processedValue + "'"));
-                    return;
-                }
+    public Object[] getDataDeleteValues(O object) {
+        return new Object[]{getColumnValue(object, getPrimaryKeyData())};
+    }
 
-                data.add(String.format("%s", fieldValue == null ? "NULL" : "'" + getForeignFieldIdData(object, field, columnData) + "'"));
-            } catch (IllegalAccessException e) {
-                e.printStackTrace();
-            }
-        });
+    public Object getColumnValue(O object, ColumnData columnData) {
+        Object fieldValue = columnData.getValue(object);
 
-        builder.append(String.join(", ", data));
-        return builder.toString();
+        if (fieldValue == null) {
+            return null;
+        }
+
+        if (!columnData.getColumn().foreignTable().isEmpty()) {
+            Object foreignData = getForeignFieldIdData(object, columnData.getField(), columnData);
+            return foreignData == null ? null : foreignData.toString();
+        }
+
+        return toColumnValue(columnData, fieldValue);
     }
 
-    public Object getFieldObject(Object object, ColumnData columnData) {
-        if (columnData.getParentObjectFields().isEmpty()) {
-            return object;
+    /**
+     * Converts a value of a column's field to the value written to the database, for columns that aren't foreign.
+     */
+    public Object toColumnValue(@NonNull ColumnData columnData, @Nullable Object fieldValue) {
+        if (fieldValue == null) {
+            return null;
         }
 
-        for (int i = 0; i < columnData.getParentObjectFields().size(); i++) {
-            String parentFieldName = columnData.getParentObjectFields().get(i);
+        FieldProcessor processor = bormAPI.getFieldProcessor(TypeToken.asTypeToken(columnData.getField().getGenericType()));
+        Object processedValue = processor.processTo(fieldValue);
 
-            try {
-                Field parentField = object.getClass().getDeclaredField(parentFieldName);
-                parentField.setAccessible(true);
-                object = parentField.get(object);
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                throw new RuntimeException(e);
-            }
+        if (processedValue instanceof byte[] bytes) {
+            return Base64.getEncoder().encodeToString(bytes);
         }
 
-        return object;
+        return processedValue == null ? null : processedValue.toString();
     }
 
-    public Object getId(BormObject object) {
-        try {
-            Field primaryKeyField = getPrimaryKeyData().getField();
-            primaryKeyField.setAccessible(true);
-            return primaryKeyField.get(object);
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
+    public Object getIdValue(@NonNull Object id) {
+        Field field = getPrimaryKeyData().getField();
+
+        if (!field.getType().isInstance(id)) {
+            return id.toString();
         }
 
-        return null;
+        FieldProcessor processor = bormAPI.getFieldProcessor(TypeToken.asTypeToken(field.getGenericType()));
+        Object processedValue = processor.processTo(id);
+
+        return processedValue == null ? null : processedValue.toString();
+    }
+
+    public Object getId(BormObject object) {
+        return getPrimaryKeyData().getValue(object);
     }
 
     protected Object getForeignFieldIdData(Object object, Field field, ColumnData columnData) {
@@ -194,53 +320,73 @@ public abstract class BormStatements<O extends BormObject> {
             return null;
         }
 
-        field.setAccessible(true);
+        BormTable<?> foreignTable = columnData.getForeignTable();
+        Object fieldValue = columnData.getValue(object);
 
-        try {
-            BormTable<?> foreignTable = columnData.getForeignTable();
-            Object fieldValue = field.get(object);
+        if (foreignTable == null) {
+            getBormAPI().getLogger().severe("(" + tableName + "): Invalid foreign table: " + columnData.getColumn().foreignTable());
+            return null;
+        }
 
-            if (foreignTable == null) {
-                getBormAPI().getLogger().severe("(" + tableName + "): Invalid foreign table: " + columnData.getColumn().foreignTable());
-                return null;
-            }
+        if (BormObject.class.isAssignableFrom(field.getType())) {
+            return foreignTable.getStatements().getId((BormObject) fieldValue);
+        }
 
-            if (field.getType().isInstance(BormObject.class)) {
-                return foreignTable.getStatements().getId((BormObject) fieldValue);
-            }
+        if (fieldValue instanceof BormRef<?> reference) {
+            return getReferenceId(foreignTable, reference);
+        }
 
-            Type fieldType = field.getGenericType();
+        if (BormRef.isReferenceList(field)) {
+            List<BormRef<?>> list = (List<BormRef<?>>) fieldValue;
+            List<Object> newList = new ArrayList<>();
+            list.forEach(reference -> newList.add(getReferenceId(foreignTable, reference)));
 
-            if (fieldType instanceof ParameterizedType parameterizedType) {
-                Class<?> fieldClass = (Class<?>) parameterizedType.getRawType();
+            return ListUtil.listToString(newList);
+        }
 
-                if (List.class.isAssignableFrom(fieldClass)) {
-                    List<BormObject> list = (List<BormObject>) fieldValue;
-                    List<Object> newList = new ArrayList<>();
-                    list.forEach(bormObject -> newList.add(foreignTable.getStatements().getId(bormObject)));
+        Type fieldType = field.getGenericType();
 
-                    return ListUtil.listToString(newList);
-                }
+        if (fieldType instanceof ParameterizedType parameterizedType) {
+            Class<?> fieldClass = (Class<?>) parameterizedType.getRawType();
 
-                if (!Map.class.isAssignableFrom(fieldClass)) {
-                    return fieldValue;
-                }
+            if (List.class.isAssignableFrom(fieldClass)) {
+                List<BormObject> list = (List<BormObject>) fieldValue;
+                List<Object> newList = new ArrayList<>();
+                list.forEach(bormObject -> newList.add(foreignTable.getStatements().getId(bormObject)));
 
-                Map<Object, BormObject> map = (Map<Object, BormObject>) fieldValue;
-                HashMap<Object, Object> newMap = new HashMap<>();
-                map.forEach((key, value) -> newMap.put(key, foreignTable.getStatements().getId(value)));
+                return ListUtil.listToString(newList);
+            }
 
-                return HashMapUtil.mapToString(newMap);
+            if (!Map.class.isAssignableFrom(fieldClass)) {
+                return fieldValue;
             }
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
+
+            Map<Object, BormObject> map = (Map<Object, BormObject>) fieldValue;
+            HashMap<Object, Object> newMap = new HashMap<>();
+            map.forEach((key, value) -> newMap.put(key, foreignTable.getStatements().getId(value)));
+
+            return HashMapUtil.mapToString(newMap);
         }
 
         return null;
     }
 
+    /**
+     * Gets the id of a referenced object without loading it.
+     */
+    private Object getReferenceId(@NonNull BormTable<?> foreignTable, @NonNull BormRef<?> reference) {
+        return reference.get().map(data -> foreignTable.getStatements().getId(data)).orElseGet(reference::getId);
+    }
+
     public ColumnData getPrimaryKeyData() {
-        return columnData.stream().filter(columnData -> columnData.getColumn().primaryKey()).findFirst().orElse(null);
+        if (primaryKeyData == null) {
+            primaryKeyData = columnData.stream().filter(columnData -> columnData.getColumn().primaryKey()).findFirst().orElse(null);
+        }
+
+        return primaryKeyData;
+    }
+
+    public record IndexData(String name, List<ColumnData> columns, boolean unique) {
     }
 
 }
@@ -3,21 +3,21 @@ package net.bitbylogic.orm.data.statements;
 import lombok.Getter;
 import lombok.NonNull;
 import net.bitbylogic.orm.BormAPI;
-import net.bitbylogic.orm.annotation.Column;
 import net.bitbylogic.orm.data.ColumnData;
 import net.bitbylogic.orm.data.BormObject;
-import net.bitbylogic.orm.processor.FieldProcessor;
-import net.bitbylogic.utils.reflection.TypeToken;
 
-import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.stream.IntStream;
 
 @Getter
 public class SQLStatements<O extends BormObject> extends BormStatements<O> {
 
+    private static final int TEXT_INDEX_PREFIX = 191;
+
     public SQLStatements(@NonNull BormAPI bormAPI, @NonNull String table) {
         super(bormAPI, table);
     }
@@ -38,20 +38,7 @@ public class SQLStatements<O extends BormObject> extends BormStatements<O> {
         List<String> keys = new ArrayList<>();
         List<String> values = new ArrayList<>();
 
-        getColumnData().stream().filter(data -> data.getColumn().primaryKey()).findFirst().ifPresent(columnData -> {
-            keys.add(columnData.getName());
-            values.add(getFormattedData(columnData));
-        });
-
-        getColumnData().forEach(columnData -> {
-            if (columnData.getColumn().primaryKey() || columnData.getColumn().autoIncrement()) {
-                return;
-            }
-
-            if (includedFields.length != 0 && Arrays.stream(includedFields).noneMatch(field -> field.equalsIgnoreCase(columnData.getField().getName()))) {
-                return;
-            }
-
+        getSaveColumns(includedFields).forEach(columnData -> {
             keys.add(columnData.getName());
             values.add(getFormattedData(columnData));
         });
@@ -66,46 +53,19 @@ public class SQLStatements<O extends BormObject> extends BormStatements<O> {
     }
 
     @Override
-    public String getDataDeleteStatement(O object) {
-        if (getColumnData().stream().noneMatch(columnData -> columnData.getColumn().primaryKey())) {
-            getBormAPI().getLogger().severe("(" + getTableName() + ") No primary key for object, failed to delete!");
-            return null;
-        }
-
-        StringBuilder builder = new StringBuilder();
-
-        getColumnData().stream().filter(columnData -> columnData.getColumn().primaryKey()).findFirst()
-                .ifPresent(columnData -> {
-                    builder.append(String.format("DELETE FROM %s WHERE %s=", getTableName(), columnData.getName()));
-
-                    try {
-                        Object fieldObject = getFieldObject(object, columnData);
-
-                        Column statementData = columnData.getColumn();
-                        Field field = columnData.getField();
-                        field.setAccessible(true);
-                        Object fieldValue = field.get(fieldObject);
-
-                        FieldProcessor processor = getBormAPI().getFieldProcessor(TypeToken.asTypeToken(field.getGenericType()));
-
-                        if (statementData.foreignTable().isEmpty()) {
-                            builder.append(String.format("%s;", fieldValue == null ? "NULL" : "'" + ((String) processor.processTo(fieldValue)).replace("'", "''") + "'"));
-                            return;
-                        }
-
-                        builder.append(String.format("%s;", fieldValue == null ? "NULL" : "'" + getForeignFieldIdData(object, field, columnData) + "'"));
-                    } catch (IllegalAccessException e) {
-                        throw new RuntimeException(e);
-                    }
-                });
+    public String getDataDeleteStatement() {
+        return String.format("DELETE FROM %s WHERE %s = ?;", getTableName(), getPrimaryKeyData().getName());
+    }
 
-        return builder.toString();
+    @Override
+    public String getDataSelectStatement() {
+        return String.format("SELECT * FROM %s WHERE %s = ?;", getTableName(), getPrimaryKeyData().getName());
     }
 
     @Override
-    public String getDataSaveStatement(O object, String... includedFields) {
+    public String getDataSaveStatement(String... includedFields) {
         StringBuilder builder = new StringBuilder(String.format("INSERT INTO %s (%s) VALUES(%s) ON DUPLICATE KEY UPDATE ",
-                getTableName(), getStatementDataBlock(false, includedFields), getValuesDataBlock(object, includedFields)));
+                getTableName(), getStatementDataBlock(false, includedFields), getPlaceholderBlock(getSaveColumns(includedFields).size())));
 
         List<String> entries = new ArrayList<>();
 
@@ -114,7 +74,7 @@ public class SQLStatements<O extends BormObject> extends BormStatements<O> {
                 return;
             }
 
-            if (includedFields.length != 0 && Arrays.stream(includedFields).noneMatch(field -> field.equalsIgnoreCase(columnData.getField().getName()))) {
+            if (includedFields.length != 0 && Arrays.stream(includedFields).noneMatch(field -> matchesColumn(columnData, field))) {
                 return;
             }
 
@@ -129,85 +89,88 @@ public class SQLStatements<O extends BormObject> extends BormStatements<O> {
     }
 
     @Override
-    protected String getUpdateStatement(O object, String... includedFields) {
-        StringBuilder builder = new StringBuilder(String.format("UPDATE %s SET ", getTableName()));
+    public int[] getSaveStatementColumns() {
+        List<ColumnData> saveColumns = getSaveColumns();
 
-        List<String> entries = new ArrayList<>();
+        return IntStream.range(0, saveColumns.size())
+                .filter(i -> saveColumns.get(i).getColumn().primaryKey() || saveColumns.get(i).getColumn().updateOnSave())
+                .toArray();
+    }
 
-        getColumnData().forEach(columnData -> {
-            if (columnData.getColumn().primaryKey() || columnData.getColumn().autoIncrement()) {
-                return;
-            }
+    @Override
+    public String getDataUpdateStatement(String... includedFields) {
+        List<String> entries = new ArrayList<>();
 
-            if (includedFields.length != 0 && Arrays.stream(includedFields).noneMatch(field -> field.equalsIgnoreCase(columnData.getField().getName()))) {
+        getSaveColumns(includedFields).forEach(columnData -> {
+            if (columnData.getColumn().primaryKey()) {
                 return;
             }
 
-            try {
-                Object fieldObject = getFieldObject(object, columnData);
+            entries.add(columnData.getName() + " = ?");
+        });
 
-                Column statementData = columnData.getColumn();
-                Field field = columnData.getField();
-                field.setAccessible(true);
-                Object fieldValue = field.get(fieldObject);
+        return String.format("UPDATE %s SET %s WHERE %s = ?;", getTableName(), String.join(", ", entries), getPrimaryKeyData().getName());
+    }
 
-                FieldProcessor processor = getBormAPI().getFieldProcessor(TypeToken.asTypeToken(field.getGenericType()));
+    @Override
+    public String getFormattedData(@NonNull ColumnData columnData) {
+        if (columnData.getForeignKeyData() != null) {
+            return columnData.getName() + " " + getColumnDataType(columnData) + " " + (columnData.getForeignKeyData().getColumn().allowNull() ? "" : "NOT NULL")
+                    + (columnData.getForeignKeyData().getColumn().autoIncrement() ? " AUTO_INCREMENT" : "");
+        }
 
-                if (statementData.foreignTable().isEmpty()) {
-                    entries.add(String.format("key= %s", fieldValue == null ? null : "'" + ((String) processor.processTo(fieldValue)).replace("'", "''") + "'"));
-                    return;
-                }
+        return columnData.getName() + " " + columnData.getDataType() + " " +
+                (columnData.getColumn().allowNull() ? "" : "NOT NULL") + (columnData.getColumn().autoIncrement() ? " AUTO_INCREMENT" : "");
+    }
 
-                entries.add(String.format("key= %s", fieldValue == null ? null : "'" + getForeignFieldIdData(object, field, columnData) + "'"));
-            } catch (IllegalAccessException e) {
-                e.printStackTrace();
-            }
-        });
+    @Override
+    public String getIndexCreateStatement(@NonNull IndexData indexData) {
+        return String.format("CREATE %sINDEX %s ON %s (%s);", indexData.unique() ? "UNIQUE " : "", indexData.name(), getTableName(), getPrefixedIndexColumnBlock(indexData));
+    }
 
-        getColumnData().stream().filter(columnData -> columnData.getColumn().primaryKey()).findFirst()
-                .ifPresent(columnData -> {
-                    try {
-                        Object fieldObject = getFieldObject(object, columnData);
+    @Override
+    public String getIndexExistsQuery() {
+        return "SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?;";
+    }
 
-                        Column statementData = columnData.getColumn();
-                        Field field = columnData.getField();
-                        field.setAccessible(true);
-                        Object fieldValue = field.get(fieldObject);
+    /**
+     * Text and blob columns can only be indexed by a prefix, which is sized to fit the index
+     * key limit of utf8mb4 columns.
+     */
+    private String getPrefixedIndexColumnBlock(@NonNull IndexData indexData) {
+        List<String> columns = new ArrayList<>();
 
-                        builder.append(String.join(", ", entries)).append(" WHERE ").append(columnData.getName()).append(" = ");
+        for (ColumnData columnData : indexData.columns()) {
+            String dataType = getColumnDataType(columnData).toUpperCase(Locale.ROOT);
 
-                        FieldProcessor processor = getBormAPI().getFieldProcessor(TypeToken.asTypeToken(field.getGenericType()));
+            if (!dataType.contains("TEXT") && !dataType.contains("BLOB")) {
+                columns.add(columnData.getName());
+                continue;
+            }
 
-                        if (statementData.foreignTable().isEmpty()) {
-                            builder.append(String.format("%s;", fieldValue == null ? "NULL" : "'" + ((String) processor.processTo(fieldValue)).replace("'", "''") + "'"));
-                            return;
-                        }
+            if (indexData.unique()) {
+                getBormAPI().getLogger().warning("(" + getTableName() + "): Unique index " + indexData.name() + " only covers the first "
+                        + TEXT_INDEX_PREFIX + " characters of " + columnData.getName() + ", give it a sized dataType to cover its full value!");
+            }
 
-                        builder.append(String.format("%s;", fieldValue == null ? "NULL" : "'" + getForeignFieldIdData(object, field, columnData) + "'"));
-                    } catch (IllegalAccessException e) {
-                        throw new RuntimeException(e);
-                    }
-                });
+            columns.add(columnData.getName() + "(" + TEXT_INDEX_PREFIX + ")");
+        }
 
-        return builder.toString();
+        return String.join(", ", columns);
     }
 
-    @Override
-    public String getFormattedData(@NonNull ColumnData columnData) {
-        if (columnData.getForeignKeyData() != null) {
-            String dataType = columnData.getForeignKeyData().getDataType();
-            Class<?> fieldClass = columnData.getField().getType();
+    protected String getColumnDataType(@NonNull ColumnData columnData) {
+        if (columnData.getForeignKeyData() == null) {
+            return columnData.getDataType();
+        }
 
-            if (fieldClass.isAssignableFrom(List.class) || fieldClass.isAssignableFrom(Map.class)) {
-                dataType = "LONGTEXT";
-            }
+        Class<?> fieldClass = columnData.getField().getType();
 
-            return columnData.getName() + " " + dataType + " " + (columnData.getForeignKeyData().getColumn().allowNull() ? "" : "NOT NULL")
-                    + (columnData.getForeignKeyData().getColumn().autoIncrement() ? " AUTO_INCREMENT" : "");
+        if (fieldClass.isAssignableFrom(List.class) || fieldClass.isAssignableFrom(Map.class)) {
+            return "LONGTEXT";
         }
 
-        return columnData.getName() + " " + columnData.getDataType() + " " +
-                (columnData.getColumn().allowNull() ? "" : "NOT NULL") + (columnData.getColumn().autoIncrement() ? " AUTO_INCREMENT" : "");
+        return columnData.getForeignKeyData().getDataType();
     }
 
 }
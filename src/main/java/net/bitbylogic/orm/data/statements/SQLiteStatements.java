@@ -7,6 +7,7 @@ import net.bitbylogic.orm.data.BormObject;
 
 import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
 
 public class SQLiteStatements<O extends BormObject> extends SQLStatements<O> {
 
@@ -15,9 +16,14 @@ public class SQLiteStatements<O extends BormObject> extends SQLStatements<O> {
     }
 
     @Override
-    public String getDataSaveStatement(O object, String... includedFields) {
+    public String getDataSaveStatement(String... includedFields) {
         return String.format("INSERT OR REPLACE INTO %s (%s) VALUES(%s)",
-                getTableName(), getStatementDataBlock(false, includedFields), getValuesDataBlock(object, includedFields)) + ";";
+                getTableName(), getStatementDataBlock(false, includedFields), getPlaceholderBlock(getSaveColumns(includedFields).size())) + ";";
+    }
+
+    @Override
+    public int[] getSaveStatementColumns() {
+        return IntStream.range(0, getSaveColumns().size()).toArray();
     }
 
     @Override
@@ -37,4 +43,14 @@ public class SQLiteStatements<O extends BormObject> extends SQLStatements<O> {
         return columnData.getName() + (columnData.getColumn().autoIncrement() ? " INTEGER PRIMARY KEY" : " " + columnData.getDataType())
                 + " " + (columnData.getColumn().allowNull() ? "" : "NOT NULL");
     }
+
+    @Override
+    public String getIndexCreateStatement(@NonNull IndexData indexData) {
+        return String.format("CREATE %sINDEX IF NOT EXISTS %s ON %s (%s);", indexData.unique() ? "UNIQUE " : "", indexData.name(), getTableName(), getIndexColumnBlock(indexData));
+    }
+
+    @Override
+    public String getIndexExistsQuery() {
+        return null;
+    }
 }
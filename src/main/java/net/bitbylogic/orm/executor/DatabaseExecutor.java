@@ -0,0 +1,235 @@
+package net.bitbylogic.orm.executor;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Wraps the executor running database work with a bounded queue. Once capacity tasks
+ * are waiting or running, new submissions are handled according to the {@link OverloadPolicy}.
+ * Tasks submitted from a database thread are always accepted, so callbacks that chain
+ * queries can't deadlock the executor, and so are {@link TaskPriority#HIGH} tasks.
+ */
+public class DatabaseExecutor extends AbstractExecutorService {
+
+    private static final ThreadLocal<Boolean> DATABASE_THREAD = ThreadLocal.withInitial(() -> false);
+
+    private final ExecutorService delegate;
+    private final @Nullable Semaphore concurrencyLimit;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+    private final AtomicInteger waitingSubmitters = new AtomicInteger();
+
+    private final AtomicInteger activeTasks = new AtomicInteger();
+
+    private final LongAdder rejectedTasks = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong averageWaitNanos = new AtomicLong();
+
+    @Getter
+    @Setter
+    private volatile int capacity;
+
+    @Getter
+    @Setter
+    private volatile @NonNull OverloadPolicy overloadPolicy;
+
+    public DatabaseExecutor(@NonNull ExecutorService delegate, int capacity, @NonNull OverloadPolicy overloadPolicy) {
+        this(delegate, capacity, overloadPolicy, 0);
+    }
+
+    /**
+     * @param maxConcurrency the maximum amount of tasks running at once, or 0 to leave it to the delegate
+     */
+    public DatabaseExecutor(@NonNull ExecutorService delegate, int capacity, @NonNull OverloadPolicy overloadPolicy, int maxConcurrency) {
+        this.delegate = delegate;
+        this.capacity = capacity;
+        this.overloadPolicy = overloadPolicy;
+        this.concurrencyLimit = maxConcurrency > 0 ? new Semaphore(maxConcurrency) : null;
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        execute(command, TaskPriority.NORMAL);
+    }
+
+    public void execute(@NonNull Runnable command, @NonNull TaskPriority priority) {
+        acquire(priority);
+
+        long submitTime = System.nanoTime();
+
+        try {
+            delegate.execute(() -> run(command, submitTime));
+        } catch (RejectedExecutionException e) {
+            release();
+            rejectedTasks.increment();
+            throw e;
+        }
+    }
+
+    public int getActiveTasks() {
+        return activeTasks.get();
+    }
+
+    /**
+     * @return the amount of tasks waiting for a thread
+     */
+    public int getQueuedTasks() {
+        return Math.max(0, pendingTasks.get() - activeTasks.get());
+    }
+
+    public long getRejectedTasks() {
+        return rejectedTasks.sum();
+    }
+
+    /**
+     * @return the moving average of the time tasks spent queued before running
+     */
+    public Duration getAverageWaitTime() {
+        return Duration.ofNanos(averageWaitNanos.get());
+    }
+
+    /**
+     * @return the longest time a task spent queued since the last call to {@link #resetMaxWaitTime()}
+     */
+    public Duration getMaxWaitTime() {
+        return Duration.ofNanos(maxWaitNanos.get());
+    }
+
+    public void resetMaxWaitTime() {
+        maxWaitNanos.set(0);
+    }
+
+    public static boolean isDatabaseThread() {
+        return DATABASE_THREAD.get();
+    }
+
+    private void acquire(@NonNull TaskPriority priority) {
+        while (true) {
+            int pending = pendingTasks.get();
+
+            if (pending < capacity || priority == TaskPriority.HIGH || isDatabaseThread()) {
+                if (pendingTasks.compareAndSet(pending, pending + 1)) {
+                    return;
+                }
+
+                continue;
+            }
+
+            if (overloadPolicy == OverloadPolicy.REJECT || (overloadPolicy == OverloadPolicy.SHED && priority == TaskPriority.LOW)) {
+                rejectedTasks.increment();
+                throw new RejectedExecutionException("Database queue is full (" + pending + "/" + capacity + " tasks)");
+            }
+
+            awaitCapacity();
+        }
+    }
+
+    private void awaitCapacity() {
+        waitingSubmitters.incrementAndGet();
+        lock.lock();
+
+        try {
+            while (pendingTasks.get() >= capacity) {
+                notFull.await(100, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejectedTasks.increment();
+            throw new RejectedExecutionException("Interrupted while waiting for room in the database queue", e);
+        } finally {
+            lock.unlock();
+            waitingSubmitters.decrementAndGet();
+        }
+    }
+
+    private void release() {
+        pendingTasks.decrementAndGet();
+
+        if (waitingSubmitters.get() == 0) {
+            return;
+        }
+
+        lock.lock();
+
+        try {
+            notFull.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run(@NonNull Runnable command, long submitTime) {
+        if (concurrencyLimit != null) {
+            concurrencyLimit.acquireUninterruptibly();
+        }
+
+        recordWait(System.nanoTime() - submitTime);
+
+        boolean databaseThread = DATABASE_THREAD.get();
+
+        activeTasks.incrementAndGet();
+        DATABASE_THREAD.set(true);
+
+        try {
+            command.run();
+        } finally {
+            DATABASE_THREAD.set(databaseThread);
+            activeTasks.decrementAndGet();
+
+            if (concurrencyLimit != null) {
+                concurrencyLimit.release();
+            }
+
+            release();
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        averageWaitNanos.getAndUpdate(average -> average == 0 ? waitNanos : average + (waitNanos - average) / 10);
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public @NonNull List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+}
@@ -0,0 +1,16 @@
+package net.bitbylogic.orm.executor;
+
+public enum ExecutorMode {
+
+    /**
+     * Database work runs on a pool of platform threads.
+     */
+    PLATFORM,
+
+    /**
+     * Every database task runs on its own virtual thread, and a semaphore sized to the
+     * connection pool limits how many of them use a connection at once.
+     */
+    VIRTUAL;
+
+}
@@ -0,0 +1,152 @@
+package net.bitbylogic.orm.executor;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import org.jetbrains.annotations.Nullable;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs writes for a single-writer database in shared transactions. Every write queued
+ * since the last commit is executed in one transaction, bounded by {@link #maxGroupSize}
+ * and {@link #maxGroupTime}, so the commit cost is paid once per group instead of once per
+ * write. Each write runs in its own savepoint, so a failing write doesn't roll back the
+ * rest of its group, and its callback only runs after the shared commit.
+ */
+public class GroupCommitWriter {
+
+    private final DataSource dataSource;
+    private final DatabaseExecutor executor;
+
+    private final ConcurrentLinkedQueue<PendingWrite> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The maximum amount of writes committed together, 1 commits every write on its own.
+     */
+    @Getter
+    @Setter
+    private volatile int maxGroupSize = 1000;
+
+    @Getter
+    @Setter
+    private volatile @NonNull Duration maxGroupTime = Duration.ofMillis(100);
+
+    public GroupCommitWriter(@NonNull DataSource dataSource, @NonNull DatabaseExecutor executor) {
+        this.dataSource = dataSource;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Void> submit(@NonNull Write write) {
+        PendingWrite pending = new PendingWrite(write);
+        queue.add(pending);
+
+        try {
+            executor.execute(this::drain, TaskPriority.HIGH);
+        } catch (RejectedExecutionException e) {
+            if (queue.remove(pending)) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+
+        return pending.future;
+    }
+
+    private void drain() {
+        if (queue.isEmpty()) {
+            return;
+        }
+
+        List<PendingWrite> group = new ArrayList<>();
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+
+            try {
+                long deadline = System.nanoTime() + maxGroupTime.toNanos();
+                int groupSize = Math.max(1, maxGroupSize);
+
+                PendingWrite pending;
+
+                while (group.size() < groupSize && System.nanoTime() - deadline < 0 && (pending = queue.poll()) != null) {
+                    group.add(pending);
+
+                    Savepoint savepoint = connection.setSavepoint();
+
+                    try {
+                        pending.callback = pending.write.execute(connection);
+                        connection.releaseSavepoint(savepoint);
+                    } catch (SQLException | RuntimeException e) {
+                        connection.rollback(savepoint);
+                        pending.failure = e;
+                    }
+                }
+
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            group.forEach(pending -> pending.future.completeExceptionally(e));
+            return;
+        }
+
+        group.forEach(this::complete);
+    }
+
+    private void complete(@NonNull PendingWrite pending) {
+        if (pending.failure != null) {
+            pending.future.completeExceptionally(pending.failure);
+            return;
+        }
+
+        try {
+            if (pending.callback != null) {
+                pending.callback.run();
+            }
+
+            pending.future.complete(null);
+        } catch (RuntimeException e) {
+            pending.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * A write executed on the shared connection. Transactions are managed by the writer,
+     * so implementations must not commit or change the auto-commit mode.
+     */
+    @FunctionalInterface
+    public interface Write {
+
+        /**
+         * @return a callback to run once the write is committed, or null
+         */
+        @Nullable Runnable execute(@NonNull Connection connection) throws SQLException;
+
+    }
+
+    private static class PendingWrite {
+
+        private final Write write;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private @Nullable Runnable callback;
+        private @Nullable Exception failure;
+
+        private PendingWrite(@NonNull Write write) {
+            this.write = write;
+        }
+
+    }
+
+}
@@ -0,0 +1,20 @@
+package net.bitbylogic.orm.executor;
+
+public enum OverloadPolicy {
+
+    /**
+     * Submitting threads wait until there's room in the queue.
+     */
+    BLOCK,
+
+    /**
+     * Submissions fail immediately with a {@link java.util.concurrent.RejectedExecutionException}.
+     */
+    REJECT,
+
+    /**
+     * Low priority submissions are rejected, everything else waits for room in the queue.
+     */
+    SHED;
+
+}
@@ -0,0 +1,18 @@
+package net.bitbylogic.orm.executor;
+
+public enum TaskPriority {
+
+    /**
+     * Work that must never be dropped or make its caller wait, such as writes. Always accepted, even
+     * when the queue is full.
+     */
+    HIGH,
+
+    NORMAL,
+
+    /**
+     * Work that can safely be dropped when the database is overloaded, such as cache refreshes.
+     */
+    LOW;
+
+}
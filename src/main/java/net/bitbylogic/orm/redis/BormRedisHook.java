@@ -24,4 +24,20 @@ public class BormRedisHook {
         );
     }
 
+    /**
+     * Sends a change carrying the written rows, which receiving servers apply to their cached objects
+     * without reading the database. Fields are the column names of the row's values, and must include the primary key.
+     */
+    public void sendChange(@NonNull BormRedisUpdateType updateType, @NonNull String table, @NonNull String objectId,
+                           @NonNull String[] fields, @NonNull String[][] rows) {
+        redisClient.sendListenerMessage(
+                new ListenerComponent(null, "borm-update")
+                        .addData("updateType", updateType)
+                        .addData("tableName", table)
+                        .addData("objectId", objectId)
+                        .addData("fields", fields)
+                        .addData("rows", rows)
+        );
+    }
+
 }
@@ -5,9 +5,11 @@ import net.bitbylogic.orm.BormAPI;
 import net.bitbylogic.orm.DatabaseType;
 import net.bitbylogic.orm.data.BormObject;
 import net.bitbylogic.orm.data.BormTable;
+import net.bitbylogic.orm.executor.TaskPriority;
 import net.bitbylogic.rps.listener.ListenerComponent;
 import net.bitbylogic.rps.listener.RedisMessageListener;
 
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
@@ -33,9 +35,19 @@ public class BormUpdateRML extends RedisMessageListener {
             return;
         }
 
+        String[] fields = component.getData("fields", String[].class);
+        String[][] rows = component.getData("rows", String[][].class);
+
+        if (fields != null && rows != null && updateType != BormRedisUpdateType.DELETE) {
+            applyRows(bormTable, updateType, fields, rows);
+            return;
+        }
+
         Executor delayedExecutor = CompletableFuture.delayedExecutor(1, TimeUnit.SECONDS);
 
         if (updateType == BormRedisUpdateType.SAVE_ALL) {
+            bormTable.invalidateMissing();
+
             CompletableFuture.runAsync(() -> {
                 bormTable.getDataMap().clear();
                 bormTable.loadData(() -> {});
@@ -45,6 +57,10 @@ public class BormUpdateRML extends RedisMessageListener {
 
         String objectId = component.getData("objectId", String.class);
 
+        if (updateType == BormRedisUpdateType.SAVE) {
+            bormTable.invalidateMissing(objectId);
+        }
+
         Optional<BormObject> optionalObject = bormTable.getDataById(objectId);
 
         if (optionalObject.isEmpty()) {
@@ -57,15 +73,15 @@ public class BormUpdateRML extends RedisMessageListener {
             switch (updateType) {
                 case SAVE:
                     if (bormAPI.getType() != DatabaseType.SQLITE) {
-                        bormTable.getDataMap().remove(bormTable.getStatements().getId(object));
-                        bormTable.getDataFromDB(objectId, false, true, o -> {
+                        bormTable.uncache(bormTable.getStatements().getId(object));
+                        bormTable.getDataFromDB(objectId, false, true, TaskPriority.LOW, o -> {
                         });
                         break;
                     }
 
                     break;
                 case DELETE:
-                    bormTable.getDataMap().remove(bormTable.getStatements().getId(object));
+                    bormTable.uncache(bormTable.getStatements().getId(object));
                     break;
                 default:
                     break;
@@ -73,4 +89,34 @@ public class BormUpdateRML extends RedisMessageListener {
         }, delayedExecutor);
     }
 
+    /**
+     * Applies the rows carried by a save to the cached objects. Rows of objects that aren't cached are
+     * only loaded from the database for saves of a whole table that's kept in memory.
+     */
+    private void applyRows(@NonNull BormTable bormTable, @NonNull BormRedisUpdateType updateType, @NonNull String[] fields, @NonNull String[][] rows) {
+        String primaryKey = bormTable.getStatements().getPrimaryKeyData() == null ? null : bormTable.getStatements().getPrimaryKeyData().getName();
+        int primaryKeyIndex = primaryKey == null ? -1 : Arrays.asList(fields).indexOf(primaryKey);
+
+        if (primaryKeyIndex == -1) {
+            return;
+        }
+
+        for (String[] row : rows) {
+            String objectId = row[primaryKeyIndex];
+
+            if (objectId == null) {
+                continue;
+            }
+
+            bormTable.invalidateMissing(objectId);
+
+            if (bormTable.applyChange(fields, row) || updateType != BormRedisUpdateType.SAVE_ALL || !bormTable.isLoadData()) {
+                continue;
+            }
+
+            bormTable.getDataFromDB(objectId, false, true, TaskPriority.LOW, o -> {
+            });
+        }
+    }
+
 }